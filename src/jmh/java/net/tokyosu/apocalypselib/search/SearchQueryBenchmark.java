@@ -0,0 +1,95 @@
+package net.tokyosu.apocalypselib.search;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folded matching of SearchQuery against the toLowerCase() + contains() it replaced, over every entry like a keystroke does.
+ * Run with -prof gc to check matches() allocates nothing: ./gradlew jmh -Pjmh.includes=SearchQueryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchQueryBenchmark {
+    private static final String[] WORDS = {
+            "Iron", "Gold", "Diamond", "Ingot", "Nugget", "Block", "Sword", "Pickaxe", "Ore", "Raw",
+            "Oak", "Log", "Planks", "Copper", "Brass", "Casing", "Gear", "Plate", "Glass", "Dye"
+    };
+
+    @Param({"50000"})
+    public int size;
+    @Param({"iron", "ingot iron", "$sharp", "zzz"})
+    public String filter;
+
+    private SearchEntry[] entries;
+    private String[] names;
+    private String[] ids;
+    private String[] tooltips;
+    private SearchQuery query;
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        this.entries = new SearchEntry[this.size];
+        this.names = new String[this.size];
+        this.ids = new String[this.size];
+        this.tooltips = new String[this.size];
+        for (int i = 0; i < this.size; i++) {
+            var name = new StringBuilder();
+            for (int word = 1 + random.nextInt(3); word > 0; word--) {
+                if (!name.isEmpty()) name.append(' ');
+                name.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            var tooltip = random.nextInt(4) == 0 ? name + "\nSharpness " + (1 + random.nextInt(5)) + "\nWhen in Main Hand:" : "";
+            this.names[i] = name.toString();
+            this.ids[i] = "modid:" + this.names[i].toLowerCase().replace(' ', '_') + "_" + i;
+            this.tooltips[i] = tooltip;
+            this.entries[i] = new SearchEntry("modid", "Mod", this.names[i], this.ids[i], new int[0], tooltip, "");
+        }
+        this.query = SearchQuery.compile(this.filter);
+    }
+
+    @Benchmark
+    public int folded() {
+        int found = 0;
+        for (var entry : this.entries) {
+            if (this.query.matches(entry)) found++;
+        }
+        return found;
+    }
+
+    /**
+     * What SearchUtils.matches() did for each stack: lower case the filter, the name, the id and each tooltip line.
+     */
+    @Benchmark
+    public int lowerCase() {
+        int found = 0;
+        for (int i = 0; i < this.size; i++) {
+            var filter = this.filter.toLowerCase();
+            boolean tooltip = filter.startsWith("$");
+            var text = tooltip ? filter.substring(1) : filter;
+            boolean matched = true;
+            for (var term : text.split(" ")) {
+                boolean termMatched = false;
+                if (tooltip) {
+                    for (var line : this.tooltips[i].split("\n")) {
+                        if (line.toLowerCase().contains(term)) {
+                            termMatched = true;
+                            break;
+                        }
+                    }
+                } else {
+                    termMatched = this.names[i].toLowerCase().contains(term) || this.ids[i].toLowerCase().contains(term);
+                }
+                matched &= termMatched;
+            }
+            if (matched) found++;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,92 @@
+package net.tokyosu.apocalypselib.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One frame of a 20x30 grid scrolled over a big catalog: read the visible cells and find the hovered one.
+ * Only the visible cells are touched, so a frame must cost the same for 600 and 50k entries.
+ * Drawing is left out (needs the game), the hover lookup is compared to the scan of every cell it replaced.
+ * Run with: ./gradlew jmh -Pjmh.includes=HitTestGridBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HitTestGridBenchmark {
+    private static final int COLUMNS = 20;
+    private static final int ROWS = 30;
+    private static final int SLOT_SIZE = 18;
+
+    @Param({"600", "50000"})
+    public int size;
+
+    private Object[] catalog;
+    private int[] cells; // x, y of each visible cell.
+    private final HitTestGrid<Integer> grid = new HitTestGrid<>(SLOT_SIZE);
+    private double[] mouse; // Mouse positions replayed frame after frame.
+    private int frame = 0;
+
+    @Setup
+    public void setup() {
+        this.catalog = new Object[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.catalog[i] = "modid:item_" + i;
+        }
+        this.cells = new int[COLUMNS * ROWS * 2];
+        for (int cell = 0; cell < COLUMNS * ROWS; cell++) {
+            int x = 8 + (cell % COLUMNS) * SLOT_SIZE, y = 18 + (cell / COLUMNS) * SLOT_SIZE;
+            this.cells[cell * 2] = x;
+            this.cells[cell * 2 + 1] = y;
+            this.grid.add(x + 1, y + 1, 16, 16, cell); // Layout, built once and not each frame.
+        }
+        this.grid.build();
+        var random = new Random(42);
+        this.mouse = new double[1024 * 2];
+        for (int i = 0; i < this.mouse.length; i++) {
+            this.mouse[i] = random.nextDouble() * (i % 2 == 0 ? COLUMNS : ROWS) * SLOT_SIZE + (i % 2 == 0 ? 8 : 18);
+        }
+    }
+
+    @Benchmark
+    public void frame(Blackhole blackhole) {
+        int f = this.frame++;
+        int start = this.visibleStart(f);
+        for (int index = start; index < Math.min(start + COLUMNS * ROWS, this.size); index++) {
+            blackhole.consume(this.catalog[index]);
+        }
+        var hovered = this.grid.get(this.mouse[(f & 1023) * 2], this.mouse[(f & 1023) * 2 + 1]);
+        blackhole.consume(hovered != null && start + hovered < this.size ? this.catalog[start + hovered] : null);
+    }
+
+    @Benchmark
+    public void frameScanningCells(Blackhole blackhole) {
+        int f = this.frame++;
+        int start = this.visibleStart(f);
+        for (int index = start; index < Math.min(start + COLUMNS * ROWS, this.size); index++) {
+            blackhole.consume(this.catalog[index]);
+        }
+        double mouseX = this.mouse[(f & 1023) * 2], mouseY = this.mouse[(f & 1023) * 2 + 1];
+        Object hovered = null;
+        for (int cell = 0; cell < COLUMNS * ROWS; cell++) {
+            if (HudUtils.isMouseHoverRect(this.cells[cell * 2] + 1, this.cells[cell * 2 + 1] + 1, 16, 16, mouseX, mouseY)) {
+                hovered = start + cell < this.size ? this.catalog[start + cell] : null;
+                break;
+            }
+        }
+        blackhole.consume(hovered);
+    }
+
+    /**
+     * Scroll one row each frame, back to the top at the end of the catalog.
+     */
+    private int visibleStart(int frame) {
+        int scrollRows = Math.max(1, (this.size + COLUMNS - 1) / COLUMNS - ROWS + 1);
+        return (frame % scrollRows) * COLUMNS;
+    }
+}
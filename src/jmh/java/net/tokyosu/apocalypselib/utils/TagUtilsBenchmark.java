@@ -0,0 +1,94 @@
+package net.tokyosu.apocalypselib.utils;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dedup of the collected stacks by structural hash against the item id + tag string keys used before.
+ * The item is given by its id so it runs without the registries, hashStack() only adds a registry lookup to it.
+ * Run with: ./gradlew jmh -Pjmh.includes=TagUtilsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagUtilsBenchmark {
+    private static final String[] ENCHANTMENTS = {"minecraft:sharpness", "minecraft:unbreaking", "minecraft:mending", "minecraft:efficiency", "minecraft:fortune"};
+    private static final String[] POTIONS = {"minecraft:healing", "minecraft:swiftness", "minecraft:night_vision", "minecraft:water"};
+
+    @Param({"50000"})
+    public int size;
+
+    private String[] ids;
+    private int[] items;
+    private CompoundTag[] tags;
+
+    @Setup
+    public void setup() {
+        var random = new Random(42);
+        this.ids = new String[this.size];
+        this.items = new int[this.size];
+        this.tags = new CompoundTag[this.size];
+        for (int i = 0; i < this.size; i++) {
+            // Items are in several tabs, so about a third of the stacks are duplicates.
+            int item = random.nextInt(this.size * 2 / 3);
+            this.items[i] = item;
+            this.ids[i] = "modid:item_" + item;
+            this.tags[i] = random.nextInt(10) < 4 ? createTag(new Random(item)) : null; // Same item, same tag.
+        }
+    }
+
+    private static CompoundTag createTag(Random random) {
+        var tag = new CompoundTag();
+        switch (random.nextInt(3)) {
+            case 0 -> {
+                var enchantments = new ListTag();
+                for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                    var enchantment = new CompoundTag();
+                    enchantment.putString("id", ENCHANTMENTS[random.nextInt(ENCHANTMENTS.length)]);
+                    enchantment.putInt("lvl", 1 + random.nextInt(5));
+                    enchantments.add(enchantment);
+                }
+                tag.put("StoredEnchantments", enchantments);
+            }
+            case 1 -> tag.putString("Potion", POTIONS[random.nextInt(POTIONS.length)]);
+            default -> {
+                var display = new CompoundTag();
+                display.putString("Name", "{\"text\":\"Machine " + random.nextInt(100) + "\"}");
+                tag.put("display", display);
+                tag.putInt("Energy", random.nextInt(100_000));
+                tag.putFloat("Speed", random.nextFloat());
+            }
+        }
+        return tag;
+    }
+
+    @Benchmark
+    public int hashKeys() {
+        var seen = new LongOpenHashSet(this.size);
+        for (int i = 0; i < this.size; i++) {
+            long hash = HashCommon.mix((long) this.items[i] + 1);
+            if (this.tags[i] != null) hash = HashCommon.mix(hash * 31 + TagUtils.hashTag(this.tags[i]));
+            seen.add(hash);
+        }
+        return seen.size();
+    }
+
+    @Benchmark
+    public int stringKeys() {
+        var seen = new HashSet<String>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            seen.add(this.ids[i] + (this.tags[i] != null ? this.tags[i].toString() : ""));
+        }
+        return seen.size();
+    }
+}
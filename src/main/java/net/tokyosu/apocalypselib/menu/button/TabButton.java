@@ -90,6 +90,17 @@ public class TabButton extends ImageButton {
         this.isSelected = false;
     }
 
+    /**
+     * Change the state without calling the tab callback, used when a tab button is rebound to another tab.
+     */
+    public void setSelected(boolean value) {
+        this.isSelected = value;
+    }
+
+    public boolean isSelected() {
+        return this.isSelected;
+    }
+
     public void setTabIcon(@NotNull ItemStack icon) {
         this.icon = icon;
     }
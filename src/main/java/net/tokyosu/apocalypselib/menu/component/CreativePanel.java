@@ -3,6 +3,7 @@ package net.tokyosu.apocalypselib.menu.component;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.Font;
 import net.minecraft.client.gui.GuiGraphics;
+import net.minecraft.client.gui.components.AbstractWidget;
 import net.minecraft.client.gui.components.Button;
 import net.minecraft.client.gui.components.EditBox;
 import net.minecraft.client.gui.components.events.AbstractContainerEventHandler;
@@ -11,13 +12,16 @@ import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.SimpleContainer;
 import net.minecraft.world.inventory.Slot;
+import net.minecraft.world.item.ItemStack;
 import net.tokyosu.apocalypselib.ApocalypseLib;
 import net.tokyosu.apocalypselib.builder.InventoryBuilder;
 import net.tokyosu.apocalypselib.menu.button.ModTabButton;
 import net.tokyosu.apocalypselib.menu.button.TabButton;
-import net.tokyosu.apocalypselib.menu.slot.SlotCreativePanel;
+import net.tokyosu.apocalypselib.tab.CatalogCache;
+import net.tokyosu.apocalypselib.tab.CatalogWarmup;
 import net.tokyosu.apocalypselib.tab.ModTabCollector;
 import net.tokyosu.apocalypselib.tab.TabCollector;
+import net.tokyosu.apocalypselib.utils.HitTestGrid;
 import net.tokyosu.apocalypselib.utils.HudUtils;
 import net.tokyosu.apocalypselib.utils.ModUtils;
 import org.jetbrains.annotations.NotNull;
@@ -34,20 +38,70 @@ public class CreativePanel {
     private static final ResourceLocation EDITOR_TEXTURE = ResourceLocation.fromNamespaceAndPath(ApocalypseLib.MOD_ID, "textures/gui/editor.png"); // 256x256
     private static final ResourceLocation EDITOR_SCROLL_TEXTURE = ResourceLocation.fromNamespaceAndPath(ApocalypseLib.MOD_ID, "textures/gui/editor_scrollbar.png"); // 12x15
     private static final Rect2i EDITOR_RECT = new Rect2i(195, 113, 256, 256); // Width, Height, TextureWidth, TextureHeight (fixed size cause of texture).
-    private static final int MAX_TAB_IN_PAGE = 7;
+    private static final Rect2i TAB_RECT = new Rect2i(196, 0, 256, 256);
+    private static final Rect2i TAB_SELECTED_RECT = new Rect2i(196, 29, 256, 256);
+    private static final int DEFAULT_TABS_PER_PAGE = 7; // Fill the panel width.
+    private static final int TAB_WIDTH = 26;
+    private static final int TAB_HEIGHT = 29;
     private final List<ModTabButton> pTabButtonList = new ArrayList<>();
+    private final List<String> prefetchNamespaces = new ArrayList<>();
+    private final HitTestGrid<AbstractWidget> widgetIndex = new HitTestGrid<>(TAB_WIDTH); // Widgets by position, rebuilt in bindTabs().
     private final InventoryBuilder baseGUI;
     private final ScrollableGrid scrollableGrid;
+    private final Button nextPageButton;
+    private final Button previousPageButton;
     private Font font;
     private EditBox searchBox;
-    private Button nextPageButton;
-    private Button previousPageButton;
+    private int tabsPerPage = DEFAULT_TABS_PER_PAGE;
     private int modCount = 0;
-    private int currentTabPage = 0;
+    private int firstTab = 0; // Mod index of the first shown tab.
+    private int selectedTab = 0; // Mod index of the selected tab, kept when the strip is scrolled.
 
     public CreativePanel(@NotNull SimpleContainer container) {
+        this(container, DEFAULT_TABS_PER_PAGE);
+    }
+
+    /**
+     * @param tabsPerPage How many mod tabs are shown at once (default 7), more than 7 go past the panel width.
+     */
+    public CreativePanel(@NotNull SimpleContainer container, int tabsPerPage) {
         this.baseGUI = new InventoryBuilder(EDITOR_TEXTURE, EDITOR_RECT.getX(), EDITOR_RECT.getY(), EDITOR_RECT.getWidth(), EDITOR_RECT.getHeight());
         this.scrollableGrid = new ScrollableGrid(container);
+        // Created once, init() only move them and page changes only rebind them.
+        this.previousPageButton = Button.builder(Component.literal("<"), btn -> this.scrollTabs(-this.tabsPerPage))
+                .bounds(0, 0, 15, 20)
+                .build();
+        this.nextPageButton = Button.builder(Component.literal(">"), btn -> this.scrollTabs(this.tabsPerPage))
+                .bounds(0, 0, 15, 20)
+                .build();
+        this.setTabsPerPage(tabsPerPage);
+    }
+
+    /**
+     * Change how many mod tabs are shown at once, the tab buttons are created here, not on page change.
+     * @param count At least 1, the pagination buttons are moved after the last tab.
+     */
+    public void setTabsPerPage(int count) {
+        this.tabsPerPage = Math.max(1, count);
+        for (int tabId = this.pTabButtonList.size(); tabId < this.tabsPerPage; tabId++) {
+            final int slot = tabId;
+            this.pTabButtonList.add(new ModTabButton(
+                    0, 0,
+                    TAB_WIDTH, TAB_HEIGHT,
+                    0,
+                    EDITOR_TEXTURE,
+                    TAB_RECT,
+                    TAB_SELECTED_RECT,
+                    (e) -> onTabButtonPressed(e, this.firstTab + slot),
+                    Component.empty()));
+        }
+        if (this.font != null) { // Already initialized.
+            this.layoutTabs();
+        }
+    }
+
+    public int getTabsPerPage() {
+        return this.tabsPerPage;
     }
 
     /**
@@ -78,16 +132,15 @@ public class CreativePanel {
      * @param screenHeight Use this.height in your screen class.
      */
     public void init(@NotNull Font font, int screenWidth, int screenHeight, int maxSearchLength) {
-        TabCollector.collectAllTabs();
-        ModTabCollector.collectAllModTabs();
-        this.modCount = ModUtils.getModCount();
+        TabCollector.ensureCollected();
+        this.modCount = ModTabCollector.getModCount();
 
         this.font = font;
         this.baseGUI.setFont(font);
         this.baseGUI.init(screenWidth, screenHeight);
 
         // Initialize scrollable grid.
-        this.scrollableGrid.setItemList(TabCollector.TAB_ITEMS);
+        this.scrollableGrid.setItemList(TabCollector.getSegments());
         this.scrollableGrid.setScrollTexture(EDITOR_SCROLL_TEXTURE);
         this.scrollableGrid.setScrollPos(this.baseGUI.getPosX() + 175, this.baseGUI.getPosY() + 18);
         this.scrollableGrid.setTabIdentifier("minecraft", ModUtils.getModName("minecraft"));
@@ -99,26 +152,43 @@ public class CreativePanel {
         this.searchBox.setTextColor(0xFFFFFF);
         this.searchBox.setResponder(this::onSearchChangedCallback);
 
-        this.makeTabs();
+        this.firstTab = 0;
+        this.selectedTab = -1; // Unselected, so pressing it call the callback.
+        this.layoutTabs();
+        this.pTabButtonList.get(0).onPress(); // Auto-select first tab.
     }
 
     /**
      * Create inventory slots for the menu, use with menu.addSlots().
+     * The slots are created once by the grid, next calls give the same slots.
      * @return A valid slots list for CreativeMenu.
      */
     public @NotNull List<Slot> createSlots(@NotNull SimpleContainer container) {
-        List<Slot> slots = new ArrayList<>();
-        int columnCount = scrollableGrid.getColumnCount();
-        int slotSize = scrollableGrid.getSlotSize();
-        for (int rowId = 0; rowId < scrollableGrid.getRowsCount(); rowId++) {
-            for (int columnId = 0; columnId < columnCount; columnId++) {
-                int slotId = (rowId * columnCount) + columnId;
-                int x = 9 + columnId * slotSize;
-                int y = 18 + rowId * slotSize;
-                slots.add(new SlotCreativePanel(container, slotId, x, y));
-            }
+        if (container != this.scrollableGrid.getContainer()) {
+            ApocalypseLib.LOGGER.error("CreativePanel.createSlots() called with another container than the one given to the constructor !");
         }
-        return slots;
+        return this.scrollableGrid.createSlots(9, 18);
+    }
+
+    /**
+     * Draw the grid without slots, the menu then has nothing to sync for the grid (cells are read only anyway).
+     * Call it before createSlots(), which then give an empty list, use getHoveredStack() to handle clicks.
+     * @param value True to only display the items, false to use slots (default).
+     */
+    public void setDisplayOnly(boolean value) {
+        this.scrollableGrid.setDisplayOnly(value);
+    }
+
+    /**
+     * Smooth scroll and display only, get the item under the mouse since there is no slot for it.
+     * @return The shown stack (copy it before giving it), or EMPTY.
+     */
+    public @NotNull ItemStack getHoveredStack(double mouseX, double mouseY) {
+        return this.scrollableGrid.getStackAt(mouseX, mouseY, this.baseGUI.getPosX() + 9, this.baseGUI.getPosY() + 18);
+    }
+
+    public @NotNull ScrollableGrid getScrollableGrid() {
+        return this.scrollableGrid;
     }
 
     public void tick() {
@@ -130,36 +200,61 @@ public class CreativePanel {
         }
     }
 
+    /**
+     * Call it when your screen is closed (removed()), save the tooltips created while searching for the next launch.
+     */
+    public void onClose() {
+        CatalogCache.saveTooltips();
+    }
+
     /**
      * Render the GUI, be sure to call this.renderTooltip() after this one !
      */
     public void render(@NotNull GuiGraphics pGui, int pMouseX, int pMouseY, float pPartialTick) {
+        // Smooth scroll and display only draw the items itself, there is no slot to draw them.
+        if (this.scrollableGrid.rendersItems()) {
+            this.scrollableGrid.renderItems(pGui, this.font, this.baseGUI.getPosX() + 9, this.baseGUI.getPosY() + 18);
+        }
+
         // Render the scroll bar.
         this.scrollableGrid.renderScrollbar(pGui);
 
+        // Opened before the warm-up is done, the first search can still be slow.
+        if (CatalogWarmup.isRunning()) {
+            this.baseGUI.drawString(8, 6, Component.literal("Loading " + (int) (CatalogWarmup.getProgress() * 100) + "%"), 0x404040);
+        }
+
         // Render tabs.
-        if (!this.pTabButtonList.isEmpty()) {
-            for (int tabId = 0; tabId < this.pTabButtonList.size(); tabId++) {
-                int modIndex = (this.currentTabPage * MAX_TAB_IN_PAGE) + tabId;
-                if (modIndex >= this.modCount) break;
-                var tab = this.pTabButtonList.get(tabId);
-                if (tab.isActive()) {
-                    tab.render(pGui, pMouseX, pMouseY, pPartialTick);
-                    var info = tab.getModInfo();
-                    if (info != null) {
-                        var stack = info.iconItem();
-                        if (stack != null && !stack.isEmpty() && HudUtils.isMouseHoverRect(tab.getX() + 5, tab.getY() + 7, pMouseX, pMouseY, 16)) {
-                            pGui.renderTooltip(this.font, Component.literal(info.displayName()), pMouseX, pMouseY);
-                        }
-                    }
-                }
+        for (int tabId = 0; tabId < this.tabsPerPage; tabId++) {
+            var tab = this.pTabButtonList.get(tabId);
+            if (tab.isActive()) {
+                tab.render(pGui, pMouseX, pMouseY, pPartialTick);
             }
         }
 
-        if (this.previousPageButton != null && this.previousPageButton.isActive())
+        if (this.previousPageButton.isActive())
             this.previousPageButton.render(pGui, pMouseX, pMouseY, pPartialTick);
-        if (this.nextPageButton != null && this.nextPageButton.isActive())
+        if (this.nextPageButton.isActive())
             this.nextPageButton.render(pGui, pMouseX, pMouseY, pPartialTick);
+
+        // Tooltips last, so no widget is drawn over them.
+        if (this.scrollableGrid.rendersItems()) {
+            var hovered = this.getHoveredStack(pMouseX, pMouseY);
+            if (!hovered.isEmpty()) {
+                pGui.renderTooltip(this.font, hovered, pMouseX, pMouseY);
+            }
+        }
+
+        // Only the tab under the mouse can show its name.
+        if (this.widgetIndex.get(pMouseX, pMouseY) instanceof ModTabButton tab && tab.isActive()) {
+            var info = tab.getModInfo();
+            if (info != null) {
+                var stack = info.iconItem();
+                if (stack != null && !stack.isEmpty() && HudUtils.isMouseHoverRect(tab.getX() + 5, tab.getY() + 7, pMouseX, pMouseY, 16)) {
+                    pGui.renderTooltip(this.font, Component.literal(info.displayName()), pMouseX, pMouseY);
+                }
+            }
+        }
     }
 
     /**
@@ -175,23 +270,15 @@ public class CreativePanel {
      * @param event Use 'this' for the event.
      */
     public boolean mouseClicked(@NotNull AbstractContainerEventHandler event, double x, double y, int type) {
-        // Check search box FIRST before other interactions
-        if (this.searchBox != null && this.searchBox.mouseClicked(x, y, type)) {
-            event.setFocused(this.searchBox);
-            return true;
-        }
-
-        if (this.previousPageButton.isActive() && this.previousPageButton.mouseClicked(x, y, type))
-            return true;
-        if (this.nextPageButton.isActive() && this.nextPageButton.mouseClicked(x, y, type))
-            return true;
-
-        // Check for tab click
-        if (!this.pTabButtonList.isEmpty()) {
-            for (var tab : this.pTabButtonList) {
-                if (tab.isActive() && tab.mouseClicked(x, y, type))
-                    return true;
+        // Only the widget under the mouse can take the click (search box, page buttons or a tab).
+        var widget = this.widgetIndex.get(x, y);
+        if (widget != null && widget == this.searchBox) {
+            if (this.searchBox.mouseClicked(x, y, type)) {
+                event.setFocused(this.searchBox);
+                return true;
             }
+        } else if (widget != null && widget.isActive() && widget.mouseClicked(x, y, type)) {
+            return true;
         }
 
         // Clicking outside the search box should unfocus it
@@ -202,20 +289,8 @@ public class CreativePanel {
     }
 
     public boolean isMouseOver(double x, double y) {
-        if (!this.pTabButtonList.isEmpty()) {
-            for (var tab : this.pTabButtonList) {
-                if (tab.isActive() && tab.isMouseOver(x, y))
-                    return true;
-            }
-        }
-
-        if (this.nextPageButton.isMouseOver(x, y)) {
-            return true;
-        }
-        if (this.previousPageButton.isMouseOver(x, y)) {
-            return true;
-        }
-        return this.searchBox.isMouseOver(x, y);
+        var widget = this.widgetIndex.get(x, y);
+        return widget != null && widget.isMouseOver(x, y); // Hidden and disabled widgets are not over.
     }
 
     public boolean keyPressed(int keyCode, int scanCode, int modifiers) {
@@ -233,6 +308,13 @@ public class CreativePanel {
     }
 
     public boolean mouseScrolled(double mouseX, double mouseY, double delta) {
+        // Over the tab strip, scroll the tabs one by one instead of the grid.
+        int stripX = this.baseGUI.getPosX() + 6;
+        int stripY = this.baseGUI.getPosY() - 28;
+        if (delta != 0 && mouseX >= stripX && mouseX < stripX + this.tabsPerPage * TAB_WIDTH && mouseY >= stripY && mouseY < stripY + TAB_HEIGHT) {
+            this.scrollTabs(delta > 0 ? -1 : 1);
+            return true;
+        }
         return this.scrollableGrid.mouseScrolled(delta);
     }
 
@@ -245,100 +327,105 @@ public class CreativePanel {
     }
 
     private void resetWithout(@NotNull TabButton button) {
-        if (this.pTabButtonList.isEmpty()) return;
-        this.pTabButtonList.forEach((tab) -> {
+        for (var tab : this.pTabButtonList) {
             if (tab != button)
                 tab.unselect();
-        });
+        }
     }
 
     private void onTabButtonPressed(@NotNull TabButton button, int modIndex) {
-        List<ModTabCollector.ModTabInfo> allMods = new ArrayList<>(ModTabCollector.getModTabs().values());
-        if (modIndex >= allMods.size()) return;
-        var modInfo = allMods.get(modIndex);
+        var modInfo = ModTabCollector.getTab(modIndex);
+        if (modInfo == null) return;
         this.resetWithout(button);
+        this.selectedTab = modIndex;
         this.searchBox.setValue("");
         this.scrollableGrid.resetSearch();
         this.scrollableGrid.setTabIdentifier(modInfo.namespace(), modInfo.displayName());
     }
 
-    private void makeTabs() {
-        this.pTabButtonList.clear();
-
-        // Get all mod tabs
-        List<ModTabCollector.ModTabInfo> allMods = new ArrayList<>(ModTabCollector.getModTabs().values());
-        int totalMods = allMods.size();
-        int totalPages = (int)Math.ceil((double) totalMods / MAX_TAB_IN_PAGE);
+    /**
+     * Scroll the tab strip, the pagination buttons scroll a full page and the mouse wheel one tab.
+     * The shown tab doesn't change, so the grid has nothing to reset.
+     * @param count Tabs to move by, negative to go back.
+     */
+    public void scrollTabs(int count) {
+        int first = Math.max(0, Math.min(this.firstTab + count, this.modCount - this.tabsPerPage));
+        if (first == this.firstTab) return;
+        this.firstTab = first;
+        this.bindTabs();
+    }
 
-        // Calculate range for current page
-        int startIndex = this.currentTabPage * MAX_TAB_IN_PAGE;
+    /**
+     * Move the tab buttons and the pagination buttons, called when the panel position or the tabs per page change.
+     */
+    private void layoutTabs() {
         int baseX = this.baseGUI.getPosX() + 6;
         int baseY = this.baseGUI.getPosY() - 28;
+        for (int tabId = 0; tabId < this.pTabButtonList.size(); tabId++) {
+            this.pTabButtonList.get(tabId).setPosition(baseX + (tabId * TAB_WIDTH), baseY);
+        }
 
-        // Create tabs for current page
-        for (int tabId = 0; tabId < MAX_TAB_IN_PAGE; tabId++) {
-            int modIndex = startIndex + tabId;
-            var tab = new ModTabButton(
-                    baseX + (tabId * 26),
-                    baseY,
-                    26, 29, // tab size.
-                    0,
-                    EDITOR_TEXTURE,
-                    new Rect2i(196, 0, 256, 256),
-                    new Rect2i(196, 29, 256, 256),
-                    (e) -> onTabButtonPressed(e, modIndex),
-                    Component.empty());
+        int paginationY = this.baseGUI.getPosY() - 24;
+        int rightX = Math.max(this.baseGUI.getPosX() + 195 + 5, baseX + this.tabsPerPage * TAB_WIDTH + 12);
+        this.previousPageButton.setPosition(this.baseGUI.getPosX() - 20, paginationY);
+        this.nextPageButton.setPosition(rightX, paginationY);
 
+        this.firstTab = Math.max(0, Math.min(this.firstTab, this.modCount - this.tabsPerPage));
+        this.bindTabs();
+    }
+
+    /**
+     * Rebind the pooled tab buttons to the mods from firstTab, the buttons are reused.
+     * The next page is prefetched, TabCollector.prefetch() only allocate for namespaces it never saw in this catalog.
+     */
+    private void bindTabs() {
+        for (int tabId = 0; tabId < this.pTabButtonList.size(); tabId++) {
+            var tab = this.pTabButtonList.get(tabId);
+            int modIndex = this.firstTab + tabId;
+            var modInfo = tabId < this.tabsPerPage ? ModTabCollector.getTab(modIndex) : null;
             // Disable if no mod for this slot
-            if (modIndex >= totalMods) {
-                tab.active = false;
-                tab.visible = false;
-            } else {
-                tab.setModInfo(allMods.get(modIndex));
+            tab.active = modInfo != null;
+            tab.visible = modInfo != null;
+            if (modInfo != null) {
+                tab.setModInfo(modInfo);
+                tab.setSelected(modIndex == this.selectedTab);
             }
+        }
 
-            // Auto-select first tab on first page
-            if (tabId == 0 && this.currentTabPage == 0) {
-                tab.onPress();
+        // Collect the next page items in background, so they are ready when the page change.
+        int nextIndex = this.firstTab + this.tabsPerPage;
+        if (nextIndex < this.modCount) {
+            this.prefetchNamespaces.clear(); // Only read by prefetch() itself, so it can be reused.
+            for (int modIndex = nextIndex; modIndex < Math.min(nextIndex + this.tabsPerPage, this.modCount); modIndex++) {
+                var modInfo = ModTabCollector.getTab(modIndex);
+                if (modInfo != null) this.prefetchNamespaces.add(modInfo.namespace());
             }
-
-            this.pTabButtonList.add(tab);
+            TabCollector.prefetch(this.prefetchNamespaces);
         }
 
-        // Create/update pagination buttons
-        this.updatePaginationButtons(totalPages);
+        this.previousPageButton.active = this.firstTab > 0;
+        this.nextPageButton.active = this.firstTab + this.tabsPerPage < this.modCount;
+        this.indexWidgets();
     }
 
-    private void updatePaginationButtons(int totalPages) {
-        int paginationY = this.baseGUI.getPosY() - 24;
-        int leftX = this.baseGUI.getPosX() - 20;
-        int rightX = this.baseGUI.getPosX() + 195 + 5;
-
-        // Previous page button
-        this.previousPageButton = Button.builder(Component.literal("<"), btn -> {
-                            if (this.currentTabPage > 0) {
-                                this.currentTabPage--;
-                                this.makeTabs();
-                                this.scrollableGrid.resetSearch();
-                                this.scrollableGrid.setDirty();
-                            }
-                        })
-                        .bounds(leftX, paginationY, 15, 20)
-                        .build();
-        this.previousPageButton.active = this.currentTabPage > 0;
-
-        // Next page button
-        this.nextPageButton = Button.builder(Component.literal(">"), btn -> {
-                            if (this.currentTabPage < totalPages - 1) {
-                                this.currentTabPage++;
-                                this.makeTabs();
-                                this.scrollableGrid.resetSearch();
-                                this.scrollableGrid.setDirty();
-                            }
-                        })
-                        .bounds(rightX, paginationY, 15, 20)
-                        .build();
-        this.nextPageButton.active = this.currentTabPage < totalPages - 1;
+    /**
+     * Index the widgets by position for mouse routing, called each time a widget is moved, shown or hidden.
+     * Added in the order the clicks were checked before, the first added win when they overlap.
+     */
+    private void indexWidgets() {
+        this.widgetIndex.clear();
+        if (this.searchBox != null) {
+            this.widgetIndex.add(this.searchBox.getX(), this.searchBox.getY(), this.searchBox.getWidth(), this.searchBox.getHeight(), this.searchBox);
+        }
+        this.widgetIndex.add(this.previousPageButton.getX(), this.previousPageButton.getY(), this.previousPageButton.getWidth(), this.previousPageButton.getHeight(), this.previousPageButton);
+        this.widgetIndex.add(this.nextPageButton.getX(), this.nextPageButton.getY(), this.nextPageButton.getWidth(), this.nextPageButton.getHeight(), this.nextPageButton);
+        for (int tabId = 0; tabId < this.tabsPerPage; tabId++) {
+            var tab = this.pTabButtonList.get(tabId);
+            if (tab.visible) {
+                this.widgetIndex.add(tab.getX(), tab.getY(), tab.getWidth(), tab.getHeight(), tab);
+            }
+        }
+        this.widgetIndex.build();
     }
 
     /**
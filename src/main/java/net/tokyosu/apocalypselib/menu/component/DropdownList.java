@@ -9,6 +9,7 @@ import net.minecraft.util.Mth;
 import net.minecraft.util.Tuple;
 import net.tokyosu.apocalypselib.ApocalypseLib;
 import net.tokyosu.apocalypselib.menu.button.HoverButton;
+import net.tokyosu.apocalypselib.utils.HudUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -180,39 +181,36 @@ public class DropdownList<T> {
 
             this.hoveredItem = null;
 
-            for (int i = 0; i < this.values.size(); i++) {
+            // Rows are the same height, so the visible and hovered rows are found from the position, not by testing each row.
+            int firstRow = Math.max(0, Math.floorDiv(clipTop - itemStartY, this.itemHeight));
+            int lastRow = Math.min(this.values.size() - 1, Math.floorDiv(clipBottom - 1 - itemStartY, this.itemHeight));
+            // The right edge of the clipped area is still part of the rows (+1).
+            int hoveredRow = HudUtils.isMouseHoverRect(clipLeft, clipTop, this.clippedArea.getWidth() + 1, this.clippedArea.getHeight(), mouseX, mouseY)
+                    ? Math.floorDiv(mouseY - itemStartY, this.itemHeight) : -1;
+
+            for (int i = firstRow; i <= lastRow; i++) {
                 T value = this.values.get(i);
                 int itemY = itemStartY + (i * this.itemHeight);
+                var isHovered = i == hoveredRow;
 
-                // Only render if visible in clipped area
-                if (itemY + this.itemHeight >= clipTop && itemY < clipBottom) {
-
-                    // Check if this item is hovered
-                    var isHovered = mouseX >= clipLeft && mouseX <= clipLeft + this.clippedArea.getWidth() &&
-                            mouseY >= itemY && mouseY < itemY + this.itemHeight &&
-                            mouseY >= clipTop && mouseY < clipBottom;
+                if (isHovered) {
                     var hoveredRect = new Rect2i(clipLeft, itemY, clipLeft + this.clippedArea.getWidth(), itemY + this.itemHeight);
-
-                    if (isHovered) {
-                        this.hoveredItem = value;
-                        if (this.onSelectHovered != null)
-                            this.onSelectHovered.accept(new Tuple<>(hoveredRect, this.hoveredItem));
-                    }
+                    this.hoveredItem = value;
+                    if (this.onSelectHovered != null)
+                        this.onSelectHovered.accept(new Tuple<>(hoveredRect, this.hoveredItem));
 
                     // Draw background for hovered item
-                    if (isHovered) {
-                        graphics.fill(hoveredRect.getX(), hoveredRect.getY(), hoveredRect.getWidth(), hoveredRect.getHeight(), 0x80FFFFFF);
-                    }
-
-                    // Draw background for selected item
-                    if (value.equals(this.selected)) {
-                        graphics.fill(hoveredRect.getX(), hoveredRect.getY(), hoveredRect.getWidth(), hoveredRect.getHeight(), 0x60FFFF00);
-                    }
-
-                    // Draw item text
-                    Component text = this.displayFunction.apply(value);
-                    graphics.drawString(Minecraft.getInstance().font, text, clipLeft + 4, itemY + (this.itemHeight / 2) - 4, 0xFFFFFF);
+                    graphics.fill(hoveredRect.getX(), hoveredRect.getY(), hoveredRect.getWidth(), hoveredRect.getHeight(), 0x80FFFFFF);
                 }
+
+                // Draw background for selected item
+                if (value.equals(this.selected)) {
+                    graphics.fill(clipLeft, itemY, clipLeft + this.clippedArea.getWidth(), itemY + this.itemHeight, 0x60FFFF00);
+                }
+
+                // Draw item text
+                Component text = this.displayFunction.apply(value);
+                graphics.drawString(Minecraft.getInstance().font, text, clipLeft + 4, itemY + (this.itemHeight / 2) - 4, 0xFFFFFF);
             }
         }
         this.disableScissor(graphics);
@@ -1,15 +1,36 @@
 package net.tokyosu.apocalypselib.menu.component;
 
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.Font;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.util.Mth;
 import net.minecraft.world.SimpleContainer;
+import net.minecraft.world.inventory.Slot;
 import net.minecraft.world.item.ItemStack;
 import net.tokyosu.apocalypselib.ApocalypseLib;
-import net.tokyosu.apocalypselib.utils.SearchUtils;
+import net.tokyosu.apocalypselib.menu.slot.SlotCreativePanel;
+import net.tokyosu.apocalypselib.search.GlobalSearch;
+import net.tokyosu.apocalypselib.search.SearchExecutor;
+import net.tokyosu.apocalypselib.search.SearchHistory;
+import net.tokyosu.apocalypselib.search.SearchHits;
+import net.tokyosu.apocalypselib.search.SearchIndex;
+import net.tokyosu.apocalypselib.search.SearchQuery;
+import net.tokyosu.apocalypselib.search.SortOrder;
+import net.tokyosu.apocalypselib.search.TooltipCache;
+import net.tokyosu.apocalypselib.tab.CatalogSegment;
+import net.tokyosu.apocalypselib.tab.TabCollector;
+import net.tokyosu.apocalypselib.utils.ModUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Helper to create a scrollable item grid.
@@ -17,16 +38,41 @@ import java.util.*;
  */
 @SuppressWarnings({"unused", "SpellCheckingInspection"})
 public class ScrollableGrid {
-    public static final int COLUMNS = 9;
-    public static final int ROWS_VISIBLE = 5;
+    public static final int COLUMNS = 9; // Default columns, see the constructor.
+    public static final int ROWS_VISIBLE = 5; // Default visible rows, see the constructor.
     public static final int MAX_SLOTS = COLUMNS * ROWS_VISIBLE;
     public static final int SLOT_SIZE = 18;
     public static final int KNOB_HEIGHT = 15;
     public static final int SCROLLBAR_WIDTH = 12;
-    public static final int SCROLLBAR_HEIGHT = ROWS_VISIBLE * SLOT_SIZE - 2;
-    private final List<ItemStack> filteredItems = new ArrayList<>();
+    public static final int SCROLLBAR_HEIGHT = ROWS_VISIBLE * SLOT_SIZE - 2; // Height of the default grid, see getScrollbarHeight().
+    public static final int RANKED_PAGES = 4; // Pages ordered by score when fuzzy search is used.
+    public static final int PREFETCH_PAGES = 2; // Pages found ahead of the visible one by the global search.
+    private static final String GLOBAL_TAB = "*";
+    private static final double SMOOTH_SPEED = 20.0; // How fast the smooth scroll reach its target, per second.
+    private static final long PREPARE_BUDGET = 2_000_000L; // Render thread time per step when the search thread need an index prepared.
+    private static final int RESULT_CACHE_SIZE = 8; // Searches kept per grid, so going back to a tab doesn't search again.
+    private final Map<String, SearchHistory> searchHistories = new HashMap<>();
+    private final Map<ResultKey, CachedResult> resultCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ResultKey, CachedResult> eldest) {
+            return size() > RESULT_CACHE_SIZE;
+        }
+    };
+    private final AtomicLong searchGeneration = new AtomicLong();
+    private final AtomicReference<SearchResult> completedSearch = new AtomicReference<>();
     private final SimpleContainer container;
-    private Map<String, LinkedHashSet<ItemStack>> linkedItems;
+    private final int columns;
+    private final int rows;
+    private final int maxSlots;
+    private final int scrollbarHeight;
+    private final int globalStartLimit;
+    private ItemStack[] shownStacks; // Stacks currently in the slots, EMPTY for empty slots.
+    private ItemStack[] spareStacks;
+    private List<Slot> slots;
+    private List<ItemStack> shownList;
+    private int shownStart = 0;
+    private Map<String, ? extends Collection<ItemStack>> linkedItems;
+    private List<ItemStack> filteredItems = List.of();
     private String searchFilter = "";
     private ResourceLocation scrollTexture;
     private String tabIdentifier;
@@ -36,19 +82,93 @@ public class ScrollableGrid {
     private int scrollRow = 0;
     private boolean dragging = false;
     private boolean dirty = false;
+    private boolean asyncSearch = false;
+    private boolean fuzzySearch = false;
+    private boolean globalSearch = false;
+    private SortOrder sortOrder = SortOrder.CATALOG;
+    private boolean smoothScroll = false;
+    private boolean displayOnly = false;
+    private double scrollPixels = 0; // Smooth scroll position shown, in pixels from the first row.
+    private double targetPixels = 0;
+    private long lastFrameTime = 0;
+    private int globalLimit;
+    private boolean searchComplete = true;
+    private Future<?> pendingSearch;
+    private String appliedFilter;
+    private String appliedTab;
+    private int appliedLimit;
+    private int appliedVersion;
+    private Collection<ItemStack> appliedSource;
 
     /**
-     * Scrollable grid need a container to set and update items.
-     * @param container A valid container.
+     * Scrollable grid need a container to set and update items, use the default size (9 columns and 5 rows).
+     * @param container A valid container, with at least MAX_SLOTS slots.
      */
     public ScrollableGrid(@NotNull SimpleContainer container) {
+        this(container, COLUMNS, ROWS_VISIBLE);
+    }
+
+    /**
+     * Scrollable grid with a custom size, only the visible cells have a slot, whatever the number of items.
+     * @param container A valid container, with at least columns * rows slots.
+     * @param columns Number of columns.
+     * @param rows Number of visible rows.
+     */
+    public ScrollableGrid(@NotNull SimpleContainer container, int columns, int rows) {
+        if (columns <= 0 || rows <= 0 || container.getContainerSize() < columns * rows) {
+            throw new IllegalArgumentException("ScrollableGrid of " + columns + "x" + rows + " need a container of " + columns * rows + " slots, got " + container.getContainerSize());
+        }
         this.container = container;
+        this.columns = columns;
+        this.rows = rows;
+        this.maxSlots = columns * rows;
+        this.scrollbarHeight = rows * SLOT_SIZE - 2;
+        this.globalStartLimit = this.maxSlots * (1 + PREFETCH_PAGES);
+        this.globalLimit = this.globalStartLimit;
+        // One more row for the partially visible row of the smooth scroll, never written in the container.
+        this.shownStacks = new ItemStack[this.maxSlots + columns];
+        this.spareStacks = new ItemStack[this.maxSlots + columns];
+        Arrays.fill(this.shownStacks, ItemStack.EMPTY);
+        Arrays.fill(this.spareStacks, ItemStack.EMPTY);
+    }
+
+    /**
+     * Create a slot for each visible cell, created once then the same slots are given back (pool).
+     * Add them to your menu once, the grid only change their items.
+     * @param x Left position of the first slot, relative to the menu.
+     * @param y Top position of the first slot, relative to the menu.
+     * @return A valid slots list, row by row.
+     */
+    public @NotNull List<Slot> createSlots(int x, int y) {
+        if (this.displayOnly) return List.of();
+        if (this.slots == null) {
+            List<Slot> slots = new ArrayList<>(this.maxSlots);
+            for (int rowId = 0; rowId < this.rows; rowId++) {
+                for (int columnId = 0; columnId < this.columns; columnId++) {
+                    int index = rowId * this.columns + columnId;
+                    var slot = new SlotCreativePanel(this.container, index, x + columnId * SLOT_SIZE, y + rowId * SLOT_SIZE);
+                    slot.setActive(!this.smoothScroll);
+                    slot.display(this.shownStacks[index]); // Items shown before the slots existed.
+                    slots.add(slot);
+                }
+            }
+            this.slots = Collections.unmodifiableList(slots);
+        }
+        return this.slots;
+    }
+
+    public @NotNull SimpleContainer getContainer() {
+        return this.container;
     }
 
     /**
-     * Set an items list mapped with a mod id.
+     * Set an items list mapped with a mod id, use TabCollector.getSegments() to show the collected catalog.
      */
-    public void setItemList(@NotNull Map<String, LinkedHashSet<ItemStack>> items) {
+    public void setItemList(@NotNull Map<String, ? extends Collection<ItemStack>> items) {
+        if (this.linkedItems != items) {
+            this.searchHistories.clear();
+            this.resultCache.clear();
+        }
         this.linkedItems = items;
     }
 
@@ -57,8 +177,10 @@ public class ScrollableGrid {
      * @param filter A valid filter.
      */
     public void setSearchFilter(@NotNull String filter) {
-        this.searchFilter = filter.toLowerCase();
+        this.searchFilter = filter.toLowerCase(Locale.ROOT); // The default locale would change "I" in Turkish, the index folds with FoldedPattern.
         this.scrollRow = 0;
+        this.scrollPixels = this.targetPixels = 0;
+        this.globalLimit = this.globalStartLimit;
         this.rebuildAdd();
     }
 
@@ -68,14 +190,121 @@ public class ScrollableGrid {
         this.rebuildAdd();
     }
 
+    /**
+     * Run the search filter on a background thread, the grid keep showing the previous results until the new ones are ready.
+     * @param value True to search in background, false to search directly (default).
+     */
+    public void setAsyncSearch(boolean value) {
+        this.asyncSearch = value;
+    }
+
+    /**
+     * Allow typos in the search filter, results are then ordered by how well they match instead of the tab order.
+     * @param value True to use fuzzy ranked search, false to use exact search in tab order (default).
+     */
+    public void setFuzzySearch(boolean value) {
+        if (this.fuzzySearch != value) {
+            this.fuzzySearch = value;
+            this.appliedFilter = null;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Change the order of the items, the sorted order of each tab is computed once (per catalog version) then reused,
+     * so changing it again only swap the order used. Fuzzy search results stay ordered by score.
+     * @param order A sort order (default CATALOG, the creative tabs order).
+     */
+    public void setSortOrder(@NotNull SortOrder order) {
+        if (this.sortOrder != order) {
+            this.sortOrder = order;
+            this.appliedFilter = null;
+            this.dirty = true;
+        }
+    }
+
+    public @NotNull SortOrder getSortOrder() {
+        return this.sortOrder;
+    }
+
+    /**
+     * Search in every namespace instead of the current tab, the current tab is still shown when the filter is empty.
+     * Only the first results are searched, more are searched when scrolling near the end.
+     * @param value True to search every namespace, false to search the current tab only (default).
+     */
+    public void setGlobalSearch(boolean value) {
+        if (this.globalSearch != value) {
+            this.globalSearch = value;
+            this.globalLimit = this.globalStartLimit;
+            this.appliedFilter = null;
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Scroll by pixels instead of whole rows, the grid then render its items itself (renderItems()) at frame rate,
+     * and its slots are disabled (the items are drawn between rows). The container is only updated when a row is crossed.
+     * @param value True to scroll smoothly, false to scroll row by row with the slots (default).
+     */
+    public void setSmoothScroll(boolean value) {
+        this.smoothScroll = value;
+        this.scrollPixels = this.targetPixels = this.scrollRow * SLOT_SIZE;
+        this.dirty = true; // Fill or drop the partial row.
+        if (this.slots != null) {
+            for (var slot : this.slots) {
+                ((SlotCreativePanel) slot).setActive(!value);
+            }
+        }
+    }
+
+    public boolean isSmoothScroll() {
+        return this.smoothScroll;
+    }
+
+    /**
+     * Show the items without any slot nor container, the grid render them itself (renderItems()) and answer hover and
+     * clicks with getStackAt(), so the menu doesn't compare and copy the cells each tick (broadcastChanges()).
+     * Must be set before createSlots(), which then give no slot.
+     * @param value True to only display the items, false to write them in the container slots (default).
+     */
+    public void setDisplayOnly(boolean value) {
+        if (this.slots != null && value) {
+            ApocalypseLib.LOGGER.error("ScrollableGrid.setDisplayOnly() called after createSlots(), the slots will stay empty !");
+        }
+        if (value && !this.displayOnly) {
+            for (int slot = 0; slot < this.maxSlots; slot++) {
+                this.container.setItem(slot, ItemStack.EMPTY);
+            }
+        }
+        this.displayOnly = value;
+        this.shownList = null; // Write every slot again on the next rebuild.
+        Arrays.fill(this.shownStacks, ItemStack.EMPTY);
+        this.dirty = true;
+    }
+
+    public boolean isDisplayOnly() {
+        return this.displayOnly;
+    }
+
+    /**
+     * Does the grid render its items itself ? (smooth scroll or display only), call renderItems() each frame if so.
+     */
+    public boolean rendersItems() {
+        return this.smoothScroll || this.displayOnly;
+    }
+
     public void setDirty() {
         this.dirty = true;
     }
 
     public void resetSearch() {
-        this.filteredItems.clear();
+        this.cancelSearch();
+        this.filteredItems = List.of();
+        this.appliedFilter = null;
         this.searchFilter = "";
         this.scrollRow = 0;
+        this.scrollPixels = this.targetPixels = 0;
+        this.globalLimit = this.globalStartLimit;
         this.dirty = true;
     }
 
@@ -93,19 +322,23 @@ public class ScrollableGrid {
     }
 
     private int getTotalRows() {
-        return (int)Math.ceil(getRealSlotsCounts() / (double)COLUMNS);
+        return (int)Math.ceil(getRealSlotsCounts() / (double)this.columns);
     }
 
     private int getMaxScroll() {
-        return Math.max(0, getTotalRows() - ROWS_VISIBLE);
+        return Math.max(0, getTotalRows() - this.rows);
     }
 
     public int getColumnCount() {
-        return COLUMNS;
+        return this.columns;
     }
 
     public int getRowsCount() {
-        return ROWS_VISIBLE;
+        return this.rows;
+    }
+
+    public int getScrollbarHeight() {
+        return this.scrollbarHeight;
     }
 
     public int getSlotSize() {
@@ -124,6 +357,12 @@ public class ScrollableGrid {
      * Rebuild the list if anything need it, this need to be called !
      */
     public void tick() {
+        // Apply the background search result if it's still the last one asked.
+        var result = this.completedSearch.getAndSet(null);
+        if (result != null && result.generation() == this.searchGeneration.get()) {
+            this.applySearch(result.tabIdentifier(), result.source(), result.filter(), result.limit(), result.items(), result.complete());
+        }
+
         if (this.dirty) {
             this.rebuildAdd();
             this.dirty = false;
@@ -131,23 +370,36 @@ public class ScrollableGrid {
     }
 
     private void rebuildAdd() {
-        if (this.linkedItems != null && !this.linkedItems.isEmpty()) {
-            for(int i = 0; i < this.container.getContainerSize(); ++i) {
-                this.container.setItem(i, ItemStack.EMPTY);
+        boolean empty = this.linkedItems == TabCollector.getSegments() ? TabCollector.isEmpty() : this.linkedItems == null || this.linkedItems.isEmpty();
+        if (!empty) {
+            if (this.globalSearch && !this.searchFilter.isEmpty()) {
+                this.rebuildGlobal();
+                return;
             }
-
             // Sort it to avoid items at different place in the list.
-            var linkedSet = this.linkedItems.get(this.tabIdentifier);
-            if (!linkedSet.isEmpty()) {
-                this.filteredItems.clear();
-
-                for (var stack : linkedSet) {
-                    if (this.searchFilter.isEmpty() || SearchUtils.matches(stack, this.searchFilter)) {
-                        this.filteredItems.add(stack);
-                    }
+            var linkedSet = this.getItems(this.tabIdentifier);
+            if (linkedSet != null && !linkedSet.isEmpty()) {
+                CachedResult cached;
+                if (linkedSet == this.appliedSource && this.searchFilter.equals(this.appliedFilter) && this.tabIdentifier.equals(this.appliedTab)) {
+                    this.rebuild(); // Already searched, only the scroll changed.
+                } else if (this.searchFilter.isEmpty()) {
+                    this.cancelSearch();
+                    this.applySearch(this.tabIdentifier, linkedSet, this.searchFilter, Integer.MAX_VALUE, this.getSortedItems(this.tabIdentifier, linkedSet), true);
+                } else if ((cached = this.resultCache.get(this.getResultKey(this.tabIdentifier, this.searchFilter))) != null && cached.source() == linkedSet) {
+                    this.cancelSearch();
+                    this.applySearch(this.tabIdentifier, linkedSet, this.searchFilter, Integer.MAX_VALUE, cached.items(), true);
+                } else if (!this.asyncSearch) {
+                    this.cancelSearch();
+                    this.applySearch(this.tabIdentifier, linkedSet, this.searchFilter, Integer.MAX_VALUE, searchItems(this.getSearchHistory(this.tabIdentifier, linkedSet), SearchQuery.compile(this.searchFilter), this.fuzzySearch, this.sortOrder, this.maxSlots * RANKED_PAGES), true);
+                } else {
+                    var history = this.getSearchHistory(this.tabIdentifier, linkedSet);
+                    var query = SearchQuery.compile(this.searchFilter);
+                    history.getIndex().prepare(query);
+                    boolean fuzzy = this.fuzzySearch;
+                    var order = this.sortOrder;
+                    int rankedCount = this.maxSlots * RANKED_PAGES;
+                    this.submitSearch(this.tabIdentifier, linkedSet, Integer.MAX_VALUE, cancelled -> new GlobalSearch.Result(searchItems(history, query, fuzzy, order, rankedCount), true));
                 }
-
-                this.rebuild();
             } else {
                 ApocalypseLib.LOGGER.error("Failed to rebuild() a ScrollableGrid, modlist is null or empty\nDid you call setItemList() or build the list correctly ?");
             }
@@ -157,25 +409,212 @@ public class ScrollableGrid {
     }
 
     /**
-     * Rebuild the container items list and notify it that it need to rebuild for the renderer.
+     * Get the items of a namespace, TabCollector namespaces are collected the first time they are shown.
      */
-    private void rebuild() {
-        // Clear ALL slots
-        for (int i = 0; i < this.container.getContainerSize(); i++) {
-            this.container.setItem(i, ItemStack.EMPTY);
+    private @Nullable Collection<ItemStack> getItems(@NotNull String namespace) {
+        if (this.linkedItems == TabCollector.getSegments()) {
+            return TabCollector.getItems(namespace);
         }
+        return this.linkedItems.get(namespace);
+    }
 
-        int startIndex = this.scrollRow * COLUMNS;
-        int endIndex = Math.min(startIndex + ROWS_VISIBLE * COLUMNS, this.filteredItems.size());
+    /**
+     * Search every namespace, only the indexes are fetched here, they are prepared by the search (see prepareGlobal()).
+     */
+    private void rebuildGlobal() {
+        if (this.searchFilter.equals(this.appliedFilter) && GLOBAL_TAB.equals(this.appliedTab) && this.appliedLimit == this.globalLimit && this.appliedVersion == TabCollector.getVersion()) {
+            this.rebuild(); // Already searched, only the scroll changed.
+            return;
+        }
 
-        int slotIndex = 0;
-        for (int i = startIndex; i < endIndex; i++) {
-            if (slotIndex < ROWS_VISIBLE * COLUMNS) {
-                this.container.setItem(slotIndex++, this.filteredItems.get(i).copy());
+        // Sorted so the results don't depend on the map order.
+        List<String> namespaces = new ArrayList<>(this.linkedItems == TabCollector.getSegments() ? TabCollector.getNamespaces() : this.linkedItems.keySet());
+        Collections.sort(namespaces);
+        if (this.sortOrder == SortOrder.MOD) {
+            namespaces.sort(Comparator.comparing(ModUtils::getModName, String.CASE_INSENSITIVE_ORDER)); // Stable, same names keep the id order.
+        }
+        List<SearchIndex> indexes = new ArrayList<>();
+        for (var namespace : namespaces) {
+            var linkedSet = this.getItems(namespace);
+            if (linkedSet != null && !linkedSet.isEmpty()) {
+                indexes.add(this.getSearchHistory(namespace, linkedSet).getIndex());
             }
         }
 
-        this.container.setChanged();
+        var query = SearchQuery.compile(this.searchFilter);
+        int limit = this.globalLimit;
+        boolean fuzzy = this.fuzzySearch;
+        var order = this.sortOrder;
+        int rankedCount = this.maxSlots * RANKED_PAGES;
+        if (this.asyncSearch) {
+            this.submitSearch(GLOBAL_TAB, null, limit, cancelled -> {
+                var prepared = prepareGlobal(indexes, query, fuzzy, rankedCount, limit, index -> prepareOnRenderThread(index, query, cancelled), cancelled);
+                return prepared != null ? GlobalSearch.search(prepared, query, fuzzy, order, rankedCount, limit, cancelled) : new GlobalSearch.Result(List.of(), false);
+            });
+        } else {
+            this.cancelSearch();
+            var prepared = prepareGlobal(indexes, query, fuzzy, rankedCount, limit, index -> index.prepare(query), () -> false);
+            var result = GlobalSearch.search(Objects.requireNonNull(prepared), query, fuzzy, order, rankedCount, limit, () -> false);
+            this.applySearch(GLOBAL_TAB, null, this.searchFilter, limit, result.items(), result.complete());
+        }
+    }
+
+    /**
+     * Prepare the namespaces in order, only until the ones in front hold enough hits for the limit,
+     * the namespaces after them can't be in the result so they are left untouched (more are prepared when scrolling).
+     * Run by the search task, or by the render thread when the search isn't async.
+     * @param prepare Prepare an index for the query, tooltips can only be created on the render thread.
+     * @return The indexes to search, or null if cancelled.
+     */
+    private static @Nullable List<SearchIndex> prepareGlobal(@NotNull List<SearchIndex> indexes, @NotNull SearchQuery query, boolean fuzzy, int rankedCount, int limit, @NotNull Consumer<SearchIndex> prepare, @NotNull BooleanSupplier cancelled) {
+        List<SearchIndex> prepared = new ArrayList<>();
+        int found = 0;
+        for (int i = 0; i < indexes.size() && found < limit; i++) {
+            if (cancelled.getAsBoolean()) return null;
+            var index = indexes.get(i);
+            prepare.accept(index);
+            if (cancelled.getAsBoolean()) return null;
+            prepared.add(index);
+            // Counted like GlobalSearch find them, so items only matching through a typo count too. Sorting doesn't change the count.
+            found += fuzzy ? index.searchRanked(query, true, rankedCount).length : index.search(query, limit - found).length;
+        }
+        return prepared;
+    }
+
+    /**
+     * Prepare an index from the search thread, the render thread does it a part at a time between frames (see prepareStep()).
+     * The search thread waits for it, the render thread never waits for the search.
+     */
+    private static void prepareOnRenderThread(@NotNull SearchIndex index, @NotNull SearchQuery query, @NotNull BooleanSupplier cancelled) {
+        var mc = Minecraft.getInstance();
+        while (!index.isPrepared(query) && !cancelled.getAsBoolean()) {
+            mc.submit(() -> index.prepareStep(query, System.nanoTime() + PREPARE_BUDGET)).join();
+        }
+    }
+
+    /**
+     * Show a search result.
+     * @param source The tab list that was searched, or null for the global search.
+     */
+    private void applySearch(@NotNull String tabIdentifier, @Nullable Collection<ItemStack> source, @NotNull String filter, int limit, @NotNull Collection<ItemStack> items, boolean complete) {
+        // Segments are read in place, only the visible cells are turned into stacks by rebuild().
+        this.filteredItems = items instanceof List<ItemStack> list ? list : new ArrayList<>(items);
+        this.appliedTab = tabIdentifier;
+        this.appliedFilter = filter;
+        this.appliedLimit = limit;
+        this.appliedVersion = TabCollector.getVersion();
+        this.appliedSource = source;
+        this.searchComplete = complete;
+        if (source != null && !filter.isEmpty()) {
+            this.resultCache.put(this.getResultKey(tabIdentifier, filter), new CachedResult(source, this.filteredItems));
+        }
+        this.rebuild();
+    }
+
+    /**
+     * Queue the search on the background thread, any previous search not started yet is cancelled.
+     * Indexes must be built before, any index prepared by the search must go through prepareOnRenderThread() since it create tooltips.
+     * @param search The search to run, given a check telling if the search is already outdated.
+     */
+    private void submitSearch(@NotNull String tabIdentifier, @Nullable Collection<ItemStack> source, int limit, @NotNull Function<BooleanSupplier, GlobalSearch.Result> search) {
+        if (this.pendingSearch != null) {
+            this.pendingSearch.cancel(false);
+        }
+        long generation = this.searchGeneration.incrementAndGet();
+        String filter = this.searchFilter;
+        this.pendingSearch = SearchExecutor.submit(() -> {
+            BooleanSupplier cancelled = () -> generation != this.searchGeneration.get();
+            if (cancelled.getAsBoolean()) return;
+            var result = search.apply(cancelled);
+            this.completedSearch.set(new SearchResult(generation, tabIdentifier, source, filter, limit, result.items(), result.complete()));
+        });
+    }
+
+    /**
+     * Drop any search still running, its result will be ignored.
+     */
+    private void cancelSearch() {
+        this.searchGeneration.incrementAndGet();
+        if (this.pendingSearch != null) {
+            this.pendingSearch.cancel(false);
+            this.pendingSearch = null;
+        }
+    }
+
+    private static @NotNull List<ItemStack> searchItems(@NotNull SearchHistory history, @NotNull SearchQuery query, boolean fuzzy, @NotNull SortOrder order, int rankedCount) {
+        var index = history.getIndex();
+        // Ranked results can't be narrowed, the order change with each character.
+        var hits = fuzzy ? index.searchRanked(query, true, rankedCount) : index.sort(history.search(query), order);
+        return new SearchHits(index, hits); // Read in place, only the shown cells become stacks.
+    }
+
+    /**
+     * Get the items of a tab in the current sort order, without copying them (the sorted order is kept by the index).
+     */
+    private @NotNull Collection<ItemStack> getSortedItems(@NotNull String tabIdentifier, @NotNull Collection<ItemStack> linkedSet) {
+        if (this.sortOrder == SortOrder.CATALOG || this.sortOrder == SortOrder.MOD) return linkedSet;
+        var index = this.getSearchHistory(tabIdentifier, linkedSet).getIndex();
+        return new SearchHits(index, index.getOrder(this.sortOrder));
+    }
+
+    /**
+     * Get the search history of a tab, its index is only built again if the tab list changed (new collection)
+     * or if the tooltips changed (language or advanced tooltips).
+     */
+    private @NotNull SearchHistory getSearchHistory(@NotNull String tabIdentifier, @NotNull Collection<ItemStack> linkedSet) {
+        var history = this.searchHistories.get(tabIdentifier);
+        if (history == null || !history.getIndex().isValidFor(linkedSet)) {
+            history = new SearchHistory(SearchIndex.of(linkedSet)); // Segment indexes can be already built by the warm-up.
+            this.searchHistories.put(tabIdentifier, history);
+        }
+        return history;
+    }
+
+    /**
+     * Update the slots with the visible items, only the slots whose item changed are written.
+     * When only the scroll changed, stacks still visible are moved to their new slot instead of being created again,
+     * so a one row scroll only create the stacks of the new row.
+     */
+    private void rebuild() {
+        int startIndex = this.scrollRow * this.columns;
+        int slotCount = this.smoothScroll ? this.shownStacks.length : this.maxSlots;
+        int endIndex = Math.min(startIndex + slotCount, this.filteredItems.size());
+        // Lists given to applySearch() are never modified, so the same list mean the same items.
+        boolean sameList = this.shownList == this.filteredItems;
+        var previous = this.shownStacks;
+        var next = this.spareStacks;
+
+        boolean changed = false;
+        for (int slot = 0; slot < next.length; slot++) {
+            int index = startIndex + slot;
+            var stack = ItemStack.EMPTY;
+            if (index < endIndex) {
+                int previousSlot = index - this.shownStart;
+                boolean shown = sameList && previousSlot >= 0 && previousSlot < previous.length && previous[previousSlot] != ItemStack.EMPTY;
+                stack = shown ? previous[previousSlot] : this.createDisplayStack(index);
+            }
+            next[slot] = stack;
+            if (stack != previous[slot] && slot < this.maxSlots && this.slots != null) {
+                // Written in the slot only, container.setItem() would notify every container listener for each slot.
+                ((SlotCreativePanel) this.slots.get(slot)).display(stack);
+                changed = true;
+            }
+        }
+        if (changed) this.container.setChanged(); // Once for the whole page.
+
+        this.shownStacks = next;
+        this.spareStacks = previous;
+        this.shownList = this.filteredItems;
+        this.shownStart = startIndex;
+    }
+
+    /**
+     * Segments (and results read from them) already create a new stack each get(), other lists are copied so the slot can't modify them.
+     */
+    private @NotNull ItemStack createDisplayStack(int index) {
+        var stack = this.filteredItems.get(index);
+        boolean created = this.filteredItems instanceof CatalogSegment || (this.filteredItems instanceof SearchHits hits && hits.createsStacks());
+        return created ? stack : stack.copy();
     }
 
     /* ---------------- RENDER ---------------- */
@@ -183,8 +622,8 @@ public class ScrollableGrid {
     public void renderScrollbar(@NotNull GuiGraphics g) {
         if (getMaxScroll() <= 0) return;
 
-        int movableHeight = SCROLLBAR_HEIGHT - KNOB_HEIGHT;
-        float progress = (float)scrollRow / getMaxScroll();
+        int movableHeight = this.scrollbarHeight - KNOB_HEIGHT;
+        float progress = this.smoothScroll ? (float) (this.scrollPixels / (getMaxScroll() * SLOT_SIZE)) : (float)scrollRow / getMaxScroll();
 
         g.blit(scrollTexture,
                 scrollbarX,
@@ -194,14 +633,86 @@ public class ScrollableGrid {
                 12, KNOB_HEIGHT);
     }
 
+    /**
+     * Smooth scroll or display only, render the visible items with the partial rows cut at the grid border.
+     * Call it each frame, it also move the smooth scroll toward its target.
+     * @param x Left of the grid on screen (first slot).
+     * @param y Top of the grid on screen (first slot).
+     */
+    public void renderItems(@NotNull GuiGraphics g, @NotNull Font font, int x, int y) {
+        if (!this.rendersItems()) return;
+        if (this.smoothScroll) {
+            this.animateScroll();
+        }
+
+        int offset = this.getRowOffset();
+        g.enableScissor(x, y, x + this.columns * SLOT_SIZE, y + this.rows * SLOT_SIZE);
+        for (int slot = 0; slot < this.shownStacks.length; slot++) {
+            var stack = this.shownStacks[slot];
+            if (stack.isEmpty()) continue;
+            int itemX = x + (slot % this.columns) * SLOT_SIZE + 1;
+            int itemY = y + (slot / this.columns) * SLOT_SIZE - offset + 1;
+            g.renderItem(stack, itemX, itemY);
+            g.renderItemDecorations(font, stack, itemX, itemY);
+        }
+        g.disableScissor();
+    }
+
+    /**
+     * Smooth scroll or display only, get the item under the mouse, use it for the tooltip and clicks since there is no slot.
+     * @param x Left of the grid on screen, same as renderItems().
+     * @param y Top of the grid on screen, same as renderItems().
+     * @return The shown stack (don't modify it), or EMPTY.
+     */
+    public @NotNull ItemStack getStackAt(double mouseX, double mouseY, int x, int y) {
+        if (mouseX < x || mouseY < y || mouseX >= x + this.columns * SLOT_SIZE || mouseY >= y + this.rows * SLOT_SIZE) return ItemStack.EMPTY;
+        int offset = this.getRowOffset();
+        int slot = (int) ((mouseY - y + offset) / SLOT_SIZE) * this.columns + (int) ((mouseX - x) / SLOT_SIZE);
+        return slot < this.shownStacks.length ? this.shownStacks[slot] : ItemStack.EMPTY;
+    }
+
+    /**
+     * Pixels of the first shown row hidden above the grid, always 0 when not scrolling smoothly.
+     */
+    private int getRowOffset() {
+        return this.smoothScroll ? (int) (this.scrollPixels - this.scrollRow * SLOT_SIZE) : 0;
+    }
+
+    /**
+     * Move the shown position toward the target, frame rate independent.
+     * The items are only moved to other slots when a row is crossed.
+     */
+    private void animateScroll() {
+        long now = System.nanoTime();
+        double seconds = this.lastFrameTime == 0 ? 0 : Math.min(0.1, (now - this.lastFrameTime) / 1_000_000_000.0);
+        this.lastFrameTime = now;
+
+        double maxPixels = getMaxScroll() * SLOT_SIZE;
+        this.targetPixels = Mth.clamp(this.targetPixels, 0.0, maxPixels);
+        double distance = this.targetPixels - this.scrollPixels;
+        this.scrollPixels = Math.abs(distance) < 0.5 ? this.targetPixels : this.scrollPixels + distance * (1.0 - Math.exp(-SMOOTH_SPEED * seconds));
+        this.scrollPixels = Mth.clamp(this.scrollPixels, 0.0, maxPixels);
+
+        int row = Mth.clamp((int) (this.scrollPixels / SLOT_SIZE), 0, getMaxScroll());
+        if (row != this.scrollRow) {
+            this.scrollRow = row;
+            this.onScrolled();
+        }
+    }
+
     /* ---------------- SCROLL WHEEL ---------------- */
 
     public boolean mouseScrolled(double delta) {
         if (getMaxScroll() <= 0) return false;
+        if (this.smoothScroll) {
+            // Trackpads give fractional deltas, keep them instead of rounding to rows.
+            this.targetPixels = Mth.clamp(this.targetPixels - delta * SLOT_SIZE, 0.0, getMaxScroll() * SLOT_SIZE);
+            return true;
+        }
         if (delta != 0.0) {
             scrollRow -= (int) delta;
             scrollRow = Mth.clamp(scrollRow, 0, getMaxScroll());
-            this.dirty = true;
+            this.onScrolled();
         }
         return true;
     }
@@ -211,7 +722,7 @@ public class ScrollableGrid {
     public boolean mouseClicked(double mouseX, double mouseY, int button) {
         if (button != 0) return false;
 
-        if (mouseX >= this.scrollbarX && mouseX <= this.scrollbarX + SCROLLBAR_WIDTH && mouseY >= this.scrollbarY && mouseY <= this.scrollbarY + SCROLLBAR_HEIGHT) {
+        if (mouseX >= this.scrollbarX && mouseX <= this.scrollbarX + SCROLLBAR_WIDTH && mouseY >= this.scrollbarY && mouseY <= this.scrollbarY + this.scrollbarHeight) {
             this.dragging = true;
             this.updateScrollFromMouse(mouseY);
             return true;
@@ -231,10 +742,52 @@ public class ScrollableGrid {
     }
 
     private void updateScrollFromMouse(double mouseY) {
-        int movableHeight = SCROLLBAR_HEIGHT - KNOB_HEIGHT;
+        int movableHeight = this.scrollbarHeight - KNOB_HEIGHT;
         double relative = mouseY - scrollbarY - (KNOB_HEIGHT / 2.0);
         double percent = Mth.clamp(relative / movableHeight, 0.0, 1.0);
+        if (this.smoothScroll) {
+            this.scrollPixels = this.targetPixels = percent * getMaxScroll() * SLOT_SIZE; // Follow the mouse without delay.
+            return;
+        }
         this.scrollRow = (int)Math.round(percent * getMaxScroll());
-        this.dirty = true;
+        this.onScrolled();
     }
+
+    /**
+     * Scrolling only move the shown window over the current result, nothing is searched again
+     * unless the global search need more results.
+     */
+    private void onScrolled() {
+        if (this.fetchMoreIfNeeded()) {
+            this.dirty = true;
+        } else {
+            this.rebuild();
+        }
+    }
+
+    /**
+     * The global search only find the first items, search more when the prefetched rows are almost reached.
+     * @return True if more items need to be searched.
+     */
+    private boolean fetchMoreIfNeeded() {
+        if (!this.searchComplete && GLOBAL_TAB.equals(this.appliedTab) && this.globalLimit == this.appliedLimit
+                && this.scrollRow + this.rows * (1 + PREFETCH_PAGES / 2) >= this.getTotalRows()) {
+            this.globalLimit = this.appliedLimit * 2;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Results depend on the fuzzy option and the tooltips (language), the tab list is checked with CachedResult.source().
+     */
+    private @NotNull ResultKey getResultKey(@NotNull String tabIdentifier, @NotNull String filter) {
+        return new ResultKey(tabIdentifier, filter, this.fuzzySearch, this.sortOrder, TooltipCache.getVersion());
+    }
+
+    private record SearchResult(long generation, String tabIdentifier, @Nullable Collection<ItemStack> source, String filter, int limit, List<ItemStack> items, boolean complete) { }
+
+    private record ResultKey(String tabIdentifier, String filter, boolean fuzzy, SortOrder order, int tooltipVersion) { }
+
+    private record CachedResult(Collection<ItemStack> source, List<ItemStack> items) { }
 }
@@ -5,12 +5,51 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.inventory.Slot;
 import net.minecraft.world.item.ItemStack;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class SlotCreativePanel extends Slot {
+    private boolean active = true;
+    private @Nullable ItemStack shown; // Set by display(), then the container is not read anymore.
+
     public SlotCreativePanel(@NotNull Container container, int p_40224_, int p_40225_, int p_40226_) {
         super(container, p_40224_, p_40225_, p_40226_);
     }
 
+    /**
+     * Disabled slots are not rendered nor clickable, used when the grid draw its items itself (smooth scroll).
+     */
+    public void setActive(boolean value) {
+        this.active = value;
+    }
+
+    @Override
+    public boolean isActive() {
+        return this.active;
+    }
+
+    /**
+     * Show a stack in this slot without writing the container, so its listeners aren't notified for each slot.
+     * Once called, the slot only read its own stack, call container.setChanged() once all slots are written.
+     */
+    public void display(@NotNull ItemStack stack) {
+        this.shown = stack;
+    }
+
+    @Override
+    public @NotNull ItemStack getItem() {
+        return this.shown != null ? this.shown : super.getItem();
+    }
+
+    @Override
+    public void set(@NotNull ItemStack stack) {
+        if (this.shown == null) {
+            super.set(stack);
+            return;
+        }
+        this.shown = stack;
+        this.setChanged();
+    }
+
     @Override
     public int getMaxStackSize() {
         return 1;
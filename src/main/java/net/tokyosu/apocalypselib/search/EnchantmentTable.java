@@ -0,0 +1,123 @@
+package net.tokyosu.apocalypselib.search;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Intern every enchantment id found in the catalog into a small number, so each entry only keep a sorted int array
+ * and a search term is matched once against each distinct enchantment instead of once per enchanted stack.
+ */
+@SuppressWarnings("unused")
+public final class EnchantmentTable {
+    private static final int[] NO_ENCHANTMENTS = new int[0];
+    private static final Object2IntOpenHashMap<String> ORDINALS = new Object2IntOpenHashMap<>();
+    private static volatile char[][] foldedIds = new char[0][];
+
+    /**
+     * Extract the enchantments id of a stack nbt (StoredEnchantments and Enchantments).
+     * @param tag A stack tag, can be null.
+     * @return Sorted enchantment ordinals without duplicate, shared empty array if none.
+     */
+    public static int @NotNull [] extract(CompoundTag tag) {
+        if (tag == null) return NO_ENCHANTMENTS;
+        boolean stored = tag.contains("StoredEnchantments", 9);
+        boolean regular = tag.contains("Enchantments", 9);
+        if (!stored && !regular) return NO_ENCHANTMENTS;
+
+        var storedList = stored ? tag.getList("StoredEnchantments", 10) : new ListTag();
+        var regularList = regular ? tag.getList("Enchantments", 10) : new ListTag();
+        int[] ordinals = new int[storedList.size() + regularList.size()];
+        int count = 0;
+        for (int i = 0; i < storedList.size(); i++) {
+            ordinals[count++] = intern(storedList.getCompound(i).getString("id"));
+        }
+        for (int i = 0; i < regularList.size(); i++) {
+            ordinals[count++] = intern(regularList.getCompound(i).getString("id"));
+        }
+        if (count == 0) return NO_ENCHANTMENTS;
+
+        Arrays.sort(ordinals, 0, count);
+        int unique = 1;
+        for (int i = 1; i < count; i++) {
+            if (ordinals[i] != ordinals[unique - 1]) {
+                ordinals[unique++] = ordinals[i];
+            }
+        }
+        return unique == ordinals.length ? ordinals : Arrays.copyOf(ordinals, unique);
+    }
+
+    /**
+     * Get the ordinal of an enchantment id, creating it if it's new.
+     * @param id An enchantment id, example: "minecraft:protection".
+     */
+    public static int intern(@NotNull String id) {
+        synchronized (ORDINALS) {
+            int ordinal = ORDINALS.getOrDefault(id, -1);
+            if (ordinal < 0) {
+                ordinal = ORDINALS.size();
+                ORDINALS.put(id, ordinal);
+                var ids = Arrays.copyOf(foldedIds, ordinal + 1);
+                ids[ordinal] = FoldedPattern.fold(id);
+                foldedIds = ids;
+            }
+            return ordinal;
+        }
+    }
+
+    /**
+     * Get the folded id of an ordinal, don't modify it !
+     */
+    public static char @NotNull [] getFoldedId(int ordinal) {
+        return foldedIds[ordinal];
+    }
+
+    public static int size() {
+        return foldedIds.length;
+    }
+
+    /**
+     * Check which enchantments contains a term, computed once when the query is compiled.
+     */
+    public static final class Matcher {
+        private final FoldedPattern pattern;
+        private final long[] matched;
+        private final int size;
+
+        public Matcher(@NotNull FoldedPattern pattern) {
+            var ids = foldedIds;
+            this.pattern = pattern;
+            this.size = ids.length;
+            this.matched = new long[(ids.length + 63) >>> 6];
+            for (int ordinal = 0; ordinal < ids.length; ordinal++) {
+                if (pattern.isIn(ids[ordinal])) {
+                    this.matched[ordinal >>> 6] |= 1L << ordinal;
+                }
+            }
+        }
+
+        public boolean matches(int ordinal) {
+            if (ordinal < this.size) {
+                return (this.matched[ordinal >>> 6] & (1L << ordinal)) != 0;
+            }
+            // Interned after this matcher was created.
+            return this.pattern.isIn(getFoldedId(ordinal));
+        }
+
+        /**
+         * Does any of these enchantments match ?
+         * @param ordinals Ordinals returned by extract().
+         */
+        public boolean matchesAny(int @NotNull [] ordinals) {
+            for (int ordinal : ordinals) {
+                if (this.matches(ordinal)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
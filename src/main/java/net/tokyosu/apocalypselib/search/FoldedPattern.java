@@ -0,0 +1,102 @@
+package net.tokyosu.apocalypselib.search;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Case-insensitive substring search over text already folded with fold().
+ * The pattern is folded and its shift table computed once, so searching never allocate anything (Horspool algorithm).
+ */
+@SuppressWarnings("unused")
+public final class FoldedPattern {
+    private static final int TABLE_SIZE = 256;
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+    private final String value;
+    private final char[] pattern;
+    private final int[] shift = new int[TABLE_SIZE];
+
+    /**
+     * @param text A valid text, folded here.
+     */
+    public FoldedPattern(@NotNull String text) {
+        this.pattern = fold(text);
+        this.value = new String(this.pattern);
+
+        // Chars share a bucket by their low byte, keep the smallest shift of the bucket so no match is skipped.
+        int length = this.pattern.length;
+        Arrays.fill(this.shift, Math.max(1, length));
+        for (int i = 0; i < length - 1; i++) {
+            this.shift[this.pattern[i] & TABLE_MASK] = length - 1 - i;
+        }
+    }
+
+    /**
+     * Fold a single char, locale independent (unlike String.toLowerCase()).
+     */
+    public static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * Fold a text into a new char array.
+     */
+    public static char @NotNull [] fold(@NotNull String text) {
+        char[] folded = new char[text.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(text.charAt(i));
+        }
+        return folded;
+    }
+
+    /**
+     * Does the folded text contains this pattern ?
+     * @param text A text folded with fold().
+     */
+    public boolean isIn(char @NotNull [] text) {
+        return this.indexIn(text) >= 0;
+    }
+
+    /**
+     * Find the first position of this pattern inside a folded text.
+     * @param text A text folded with fold().
+     * @return The position, or -1 if not found.
+     */
+    public int indexIn(char @NotNull [] text) {
+        final char[] pattern = this.pattern;
+        final int length = pattern.length;
+        if (length == 0) return 0;
+
+        final int last = length - 1;
+        final char lastChar = pattern[last];
+        int position = 0;
+        while (position + length <= text.length) {
+            char c = text[position + last];
+            if (c == lastChar) {
+                int j = last - 1;
+                while (j >= 0 && text[position + j] == pattern[j]) j--;
+                if (j < 0) return position;
+            }
+            position += this.shift[c & TABLE_MASK];
+        }
+        return -1;
+    }
+
+    /**
+     * The folded pattern, don't modify it !
+     */
+    public char @NotNull [] getChars() {
+        return this.pattern;
+    }
+
+    public int length() {
+        return this.pattern.length;
+    }
+
+    /**
+     * The folded pattern as a String.
+     */
+    public @NotNull String getValue() {
+        return this.value;
+    }
+}
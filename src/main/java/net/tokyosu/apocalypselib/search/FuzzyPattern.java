@@ -0,0 +1,106 @@
+package net.tokyosu.apocalypselib.search;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Approximate substring search over text already folded with FoldedPattern.fold() (bit-parallel, Wu-Manber).
+ * Find the pattern with up to 2 edits (insertion, deletion or substitution), so "diamnod" still find "diamond".
+ * The masks are computed once, searching never allocate anything.
+ */
+@SuppressWarnings("unused")
+public final class FuzzyPattern {
+    public static final int MAX_LENGTH = 63;
+    public static final int MAX_EDITS = 2;
+    private final long[] lowMasks = new long[256]; // Chars below 256, direct access.
+    private final char[] highChars; // Other chars of the pattern, few of them so a linear search is fine.
+    private final long[] highMasks;
+    private final long matchBit;
+    private final int maxEdits;
+
+    private FuzzyPattern(char @NotNull [] pattern, int maxEdits) {
+        this.maxEdits = maxEdits;
+        this.matchBit = 1L << (pattern.length - 1);
+
+        int highCount = 0;
+        char[] highChars = new char[pattern.length];
+        long[] highMasks = new long[pattern.length];
+        for (int i = 0; i < pattern.length; i++) {
+            char c = pattern[i];
+            if (c < 256) {
+                this.lowMasks[c] |= 1L << i;
+                continue;
+            }
+            int slot = 0;
+            while (slot < highCount && highChars[slot] != c) slot++;
+            if (slot == highCount) highChars[highCount++] = c;
+            highMasks[slot] |= 1L << i;
+        }
+        this.highChars = Arrays.copyOf(highChars, highCount);
+        this.highMasks = Arrays.copyOf(highMasks, highCount);
+    }
+
+    /**
+     * Create a fuzzy pattern, the allowed edits depend on the length (short words would match almost anything).
+     * @param pattern A pattern folded with FoldedPattern.fold().
+     * @return A valid FuzzyPattern, or null if the pattern is too short or too long to be fuzzy.
+     */
+    public static @Nullable FuzzyPattern create(char @NotNull [] pattern) {
+        int maxEdits = getMaxEdits(pattern.length);
+        if (maxEdits == 0 || pattern.length > MAX_LENGTH) return null;
+        return new FuzzyPattern(pattern, maxEdits);
+    }
+
+    /**
+     * Edits allowed for a pattern length: 0 up to 3 chars, 1 up to 5 chars, then 2.
+     */
+    public static int getMaxEdits(int length) {
+        if (length <= 3) return 0;
+        if (length <= 5) return 1;
+        return MAX_EDITS;
+    }
+
+    private long getMask(char c) {
+        if (c < 256) return this.lowMasks[c];
+        for (int i = 0; i < this.highChars.length; i++) {
+            if (this.highChars[i] == c) return this.highMasks[i];
+        }
+        return 0L;
+    }
+
+    /**
+     * Find the smallest number of edits needed to find this pattern inside a folded text.
+     * @param text A text folded with FoldedPattern.fold().
+     * @return The number of edits, or -1 if more than the allowed edits are needed.
+     */
+    public int distanceIn(char @NotNull [] text) {
+        final long matchBit = this.matchBit;
+        final int maxEdits = this.maxEdits;
+        // Bit i of rN is set when the pattern 0..i end at the current text position with at most N edits.
+        // At start, the N first pattern chars can be deleted.
+        long r0 = 0L, r1 = 1L, r2 = 3L;
+        int best = -1;
+
+        for (char c : text) {
+            long mask = this.getMask(c);
+            long old0 = r0, old1 = r1;
+            r0 = ((r0 << 1) | 1L) & mask;
+            // Match, substitution, insertion in text, deletion in pattern.
+            r1 = (((r1 << 1) | 1L) & mask) | (old0 << 1) | 1L | old0 | (r0 << 1);
+            if (maxEdits > 1) {
+                r2 = (((r2 << 1) | 1L) & mask) | (old1 << 1) | 1L | old1 | (r1 << 1);
+            }
+
+            if ((r0 & matchBit) != 0) return 0;
+            if ((r1 & matchBit) != 0) best = 1;
+            else if (best < 0 && maxEdits > 1 && (r2 & matchBit) != 0) best = 2;
+        }
+        return best;
+    }
+
+    public int getMaxEdits() {
+        return this.maxEdits;
+    }
+}
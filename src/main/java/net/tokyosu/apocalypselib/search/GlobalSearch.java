@@ -0,0 +1,156 @@
+package net.tokyosu.apocalypselib.search;
+
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Search every namespace at once, each namespace index is searched as a separate task on the common fork-join pool.
+ * Results are merged in the order the indexes are given, so the result is the same whatever task finish first.
+ * Once the namespaces in front have enough hits, the namespaces behind them are skipped.
+ * Every index must have been prepared with the query on the render thread before searching !
+ */
+@SuppressWarnings("unused")
+public final class GlobalSearch {
+    private static final int NAMESPACES_PER_TASK = 8; // Most namespaces are small, don't make a task for each one.
+    private final SearchIndex[] indexes;
+    private final SearchQuery query;
+    private final boolean fuzzy;
+    private final SortOrder order;
+    private final int rankedCount;
+    private final int limit;
+    private final BooleanSupplier cancelled;
+    private final int[][] hits;
+    private final boolean[] done;
+    private int donePrefix = 0;
+    private int prefixHits = 0;
+    private volatile int cutoff = Integer.MAX_VALUE;
+
+    private GlobalSearch(@NotNull SearchIndex[] indexes, @NotNull SearchQuery query, boolean fuzzy, @NotNull SortOrder order, int rankedCount, int limit, @NotNull BooleanSupplier cancelled) {
+        this.indexes = indexes;
+        this.query = query;
+        this.fuzzy = fuzzy;
+        this.order = order;
+        this.rankedCount = rankedCount;
+        this.limit = limit;
+        this.cancelled = cancelled;
+        this.hits = new int[indexes.length][];
+        this.done = new boolean[indexes.length];
+    }
+
+    /**
+     * Search a query in every index.
+     * @param indexes Prepared indexes, one per namespace, the results follow this order.
+     * @param query A valid query.
+     * @param fuzzy Allow typos, each namespace is then ordered by score (the namespaces order is kept).
+     * @param rankedCount How many entries of each namespace are ordered by score when fuzzy.
+     * @param limit Stop once this many items are found, use the visible slots and a few more rows.
+     * @param cancelled Checked before each namespace, return true to stop searching (outdated search).
+     * @return A valid Result, not complete if the limit was reached or if it was cancelled.
+     */
+    public static @NotNull Result search(@NotNull List<SearchIndex> indexes, @NotNull SearchQuery query, boolean fuzzy, int rankedCount, int limit, @NotNull BooleanSupplier cancelled) {
+        return search(indexes, query, fuzzy, SortOrder.CATALOG, rankedCount, limit, cancelled);
+    }
+
+    /**
+     * Search a query in every index, each namespace is sorted (not fuzzy only), the namespaces order is kept.
+     * @param order Order of the items inside each namespace, ignored when fuzzy (ordered by score).
+     * @see #search(List, SearchQuery, boolean, int, int, BooleanSupplier)
+     */
+    public static @NotNull Result search(@NotNull List<SearchIndex> indexes, @NotNull SearchQuery query, boolean fuzzy, @NotNull SortOrder order, int rankedCount, int limit, @NotNull BooleanSupplier cancelled) {
+        var search = new GlobalSearch(indexes.toArray(new SearchIndex[0]), query, fuzzy, order, rankedCount, limit, cancelled);
+        if (!indexes.isEmpty()) {
+            ForkJoinPool.commonPool().invoke(search.new Task(0, indexes.size()));
+        }
+        return search.merge();
+    }
+
+    private void searchNamespace(int namespace) {
+        if (namespace > this.cutoff || this.cancelled.getAsBoolean()) return;
+        var index = this.indexes[namespace];
+        int[] found;
+        if (this.fuzzy) {
+            found = index.searchRanked(this.query, true, this.rankedCount);
+        } else if (this.order == SortOrder.CATALOG || this.order == SortOrder.MOD) {
+            found = index.search(this.query, this.limit);
+        } else {
+            found = index.sort(index.search(this.query), this.order); // The first items of a sort can be anywhere.
+        }
+        this.complete(namespace, found);
+    }
+
+    /**
+     * Record a namespace result, once every namespace in front of a cutoff is done and hold enough hits,
+     * namespaces after it can't be in the result anymore.
+     */
+    private synchronized void complete(int namespace, int @NotNull [] found) {
+        this.hits[namespace] = found;
+        this.done[namespace] = true;
+        while (this.donePrefix < this.done.length && this.done[this.donePrefix] && this.cutoff == Integer.MAX_VALUE) {
+            this.prefixHits += this.hits[this.donePrefix].length;
+            if (this.prefixHits >= this.limit) {
+                this.cutoff = this.donePrefix;
+            }
+            this.donePrefix++;
+        }
+    }
+
+    /**
+     * Only the hit positions are merged, the stacks are created when shown (see SearchHits).
+     */
+    private @NotNull Result merge() {
+        int total = 0;
+        for (int namespace = 0; namespace < this.indexes.length && total < this.limit && this.hits[namespace] != null; namespace++) {
+            total += this.hits[namespace].length;
+        }
+
+        int[] owners = new int[Math.min(total, this.limit)];
+        int[] ids = new int[owners.length];
+        int count = 0;
+        boolean complete = this.cutoff == Integer.MAX_VALUE;
+        for (int namespace = 0; namespace < this.indexes.length && count < this.limit; namespace++) {
+            var found = this.hits[namespace];
+            if (found == null) {
+                complete = false; // Cancelled or after the cutoff.
+                break;
+            }
+            for (int i = 0; i < found.length && count < this.limit; i++) {
+                owners[count] = namespace;
+                ids[count++] = found[i];
+            }
+        }
+        return new Result(new SearchHits(this.indexes, owners, ids, count), complete);
+    }
+
+    private final class Task extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        private Task(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= NAMESPACES_PER_TASK) {
+                for (int namespace = this.from; namespace < this.to; namespace++) {
+                    searchNamespace(namespace);
+                }
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new Task(this.from, middle), new Task(middle, this.to));
+        }
+    }
+
+    /**
+     * @param items Found items, in the namespaces order.
+     * @param complete False if more items could be found with a higher limit.
+     */
+    public record Result(List<ItemStack> items, boolean complete) { }
+}
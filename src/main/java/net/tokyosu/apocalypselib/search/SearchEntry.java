@@ -0,0 +1,229 @@
+package net.tokyosu.apocalypselib.search;
+
+import net.minecraft.world.item.ItemStack;
+import net.tokyosu.apocalypselib.tab.CatalogSegment;
+import net.tokyosu.apocalypselib.utils.RarityUtils;
+import net.tokyosu.apocalypselib.utils.ResourceUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Searchable fields of a single catalog stack, folded once (see FoldedPattern) so matching doesn't allocate.
+ * Cheap fields are extracted when the entry is created, the tooltip and item tags are only extracted when a query need them.
+ * An entry of a CatalogSegment only keep its position, its ItemStack is created by getStack() when the cell is shown.
+ */
+@SuppressWarnings("unused")
+public final class SearchEntry {
+    private final @Nullable CatalogSegment segment;
+    private final int index;
+    private final @Nullable ItemStack stack; // Only kept when the entry doesn't come from a segment.
+    private final String namespace;
+    private final char[] foldedNamespace;
+    private final char[] modName;
+    private final char[] name;
+    private final char[] id;
+    private final int[] enchantments;
+    private final byte rarity; // Read when the entry is created, Item.getRarity() is mod code so not called by a search.
+    private char[] tooltip;
+    private char[] tags;
+
+    /**
+     * @param stack A valid ItemStack, kept by the entry.
+     * @param modNames Give the folded mod display name of a namespace, should be cached since it's called for each entry.
+     */
+    public SearchEntry(@NotNull ItemStack stack, @NotNull Function<String, char[]> modNames) {
+        this(null, 0, stack, stack, modNames);
+    }
+
+    /**
+     * @param segment A collected namespace, read in place.
+     * @param index Position of the stack in the segment.
+     * @param modNames Give the folded mod display name of a namespace, should be cached since it's called for each entry.
+     */
+    public SearchEntry(@NotNull CatalogSegment segment, int index, @NotNull Function<String, char[]> modNames) {
+        this(segment, index, null, segment.get(index), modNames);
+    }
+
+    /**
+     * Entry without a stack, every field given as is (folded here), used by the tests since they can't create an ItemStack.
+     * getStack() return an empty stack.
+     */
+    SearchEntry(@NotNull String namespace, @NotNull String modName, @NotNull String name, @NotNull String id, int @NotNull [] enchantments, @NotNull String tooltip, @NotNull String tags) {
+        this.segment = null;
+        this.index = 0;
+        this.stack = null;
+        this.namespace = namespace;
+        this.foldedNamespace = FoldedPattern.fold(namespace);
+        this.modName = FoldedPattern.fold(modName);
+        this.name = FoldedPattern.fold(name);
+        this.id = FoldedPattern.fold(id);
+        this.enchantments = enchantments;
+        this.rarity = 0;
+        this.tooltip = FoldedPattern.fold(tooltip);
+        this.tags = FoldedPattern.fold(tags);
+    }
+
+    private SearchEntry(@Nullable CatalogSegment segment, int index, @Nullable ItemStack stack, @NotNull ItemStack view, @NotNull Function<String, char[]> modNames) {
+        var location = ResourceUtils.getResourcebyItem(view.getItem());
+        this.segment = segment;
+        this.index = index;
+        this.stack = stack;
+        this.namespace = location != null ? location.getNamespace() : "";
+        this.foldedNamespace = FoldedPattern.fold(this.namespace);
+        this.modName = modNames.apply(this.namespace);
+        this.name = FoldedPattern.fold(view.getHoverName().getString());
+        this.id = FoldedPattern.fold(view.getItem().toString());
+        this.enchantments = EnchantmentTable.extract(view.getTag());
+        this.rarity = (byte) RarityUtils.getRank(view);
+    }
+
+    /**
+     * Get the stack of this entry, a new one each call for a segment entry (so only ask it for shown cells).
+     */
+    public @NotNull ItemStack getStack() {
+        if (this.segment != null) return this.segment.get(this.index);
+        return this.stack != null ? this.stack : ItemStack.EMPTY;
+    }
+
+    /**
+     * Does getStack() create a new stack each call ? If not, copy it before showing it.
+     */
+    public boolean createsStack() {
+        return this.segment != null;
+    }
+
+    /**
+     * Stack to read the entry from, without keeping it.
+     */
+    private @NotNull ItemStack view() {
+        if (this.segment != null) return this.segment.get(this.index);
+        return this.stack != null ? this.stack : ItemStack.EMPTY;
+    }
+
+    private boolean hasTag() {
+        if (this.segment != null) return this.segment.getTag(this.index) != null;
+        return this.stack != null && this.stack.hasTag();
+    }
+
+    /**
+     * Rank of the stack rarity, see RarityUtils.getRank().
+     */
+    public int getRarityRank() {
+        return this.rarity;
+    }
+
+    public @NotNull String getNamespace() {
+        return this.namespace;
+    }
+
+    public char @NotNull [] getModName() {
+        return this.modName;
+    }
+
+    public char @NotNull [] getName() {
+        return this.name;
+    }
+
+    public char @NotNull [] getId() {
+        return this.id;
+    }
+
+    /**
+     * Enchantment ordinals of this stack, see EnchantmentTable.
+     */
+    public int @NotNull [] getEnchantments() {
+        return this.enchantments;
+    }
+
+    /**
+     * Get the tooltip text, only stacks with nbt are searched by tooltip (same as SearchUtils.matches()).
+     * Create the tooltip the first time, so only call it from the render thread unless it was already done !
+     */
+    public char @NotNull [] getTooltip() {
+        if (this.tooltip == null) {
+            this.tooltip = this.hasTag() ? TooltipCache.get(this.getStack()).toCharArray() : new char[0];
+        }
+        return this.tooltip;
+    }
+
+    /**
+     * Get every item tag of this stack (example: "minecraft:logs"), one per line.
+     * Read the tags the first time, so only call it from the render thread unless it was already done (see SearchIndex.prepare()) !
+     */
+    public char @NotNull [] getTags() {
+        if (this.tags == null) {
+            this.tags = FoldedPattern.fold(this.view().getTags().map(tag -> tag.location().toString()).collect(Collectors.joining("\n")));
+        }
+        return this.tags;
+    }
+
+    /**
+     * Mod id or mod display name.
+     */
+    public boolean matchesMod(@NotNull FoldedPattern pattern) {
+        return pattern.isIn(this.foldedNamespace) || pattern.isIn(this.modName);
+    }
+
+    /**
+     * Plain term, check the cheapest fields first and the tooltip last.
+     */
+    public boolean matchesText(@NotNull FoldedPattern pattern, @NotNull EnchantmentTable.Matcher enchantments) {
+        if (pattern.isIn(this.name) || pattern.isIn(this.id)) {
+            return true;
+        }
+        if (enchantments.matchesAny(this.enchantments)) {
+            return true;
+        }
+        return pattern.isIn(this.getTooltip());
+    }
+
+    /**
+     * Score a plain term, the better the field matched the higher the score:
+     * exact name > name prefix > name > fuzzy name > registry name > enchantment > tooltip.
+     * @param pattern The exact term.
+     * @param fuzzy The same term allowing edits, or null to only accept exact matches.
+     * @param enchantments The same term matched against the enchantments.
+     * @return A score, or -1 if the term doesn't match.
+     */
+    public int scoreText(@NotNull FoldedPattern pattern, @Nullable FuzzyPattern fuzzy, @NotNull EnchantmentTable.Matcher enchantments) {
+        if (Arrays.equals(this.name, pattern.getChars())) return 1000;
+        int position = pattern.indexIn(this.name);
+        if (position == 0) return 900;
+        if (position > 0) return 800;
+        if (fuzzy != null) {
+            int edits = fuzzy.distanceIn(this.name);
+            if (edits >= 0) return 700 - edits * 100;
+        }
+        if (pattern.isIn(this.id)) return 400;
+        if (fuzzy != null) {
+            int edits = fuzzy.distanceIn(this.id);
+            if (edits >= 0) return 350 - edits * 50;
+        }
+        if (enchantments.matchesAny(this.enchantments)) return 300;
+        var text = this.getTooltip();
+        if (pattern.isIn(text)) return 200;
+        if (fuzzy != null) {
+            int edits = fuzzy.distanceIn(text);
+            if (edits >= 0) return 150 - edits * 50;
+        }
+        return -1;
+    }
+
+    /**
+     * Give every field a plain term look at, used to build the trigram postings.
+     * Fields are given one by one so no trigram is made across two fields.
+     */
+    public void forEachTextField(@NotNull Consumer<char[]> consumer) {
+        consumer.accept(this.name);
+        consumer.accept(this.id);
+        for (int enchantment : this.enchantments) {
+            consumer.accept(EnchantmentTable.getFoldedId(enchantment));
+        }
+        consumer.accept(this.getTooltip());
+    }
+}
@@ -0,0 +1,29 @@
+package net.tokyosu.apocalypselib.search;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Single background thread used to run search queries outside the render thread.
+ * Only give it work that read already built data (SearchIndex), never anything that create tooltip or touch the level !
+ */
+@SuppressWarnings("unused")
+public final class SearchExecutor {
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "ApocalypseLib Search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Queue a search task, tasks are run one by one in the order they are submitted.
+     * @param task A valid task.
+     * @return A future that can be cancelled if the task is not needed anymore.
+     */
+    public static @NotNull Future<?> submit(@NotNull Runnable task) {
+        return EXECUTOR.submit(task);
+    }
+}
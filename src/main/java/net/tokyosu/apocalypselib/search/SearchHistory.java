@@ -0,0 +1,61 @@
+package net.tokyosu.apocalypselib.search;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Remember the last results of a SearchIndex so refining a query only filter the previous hits,
+ * and removing characters step back to an already computed result.
+ * Thread safe, so it can be used by a background search.
+ */
+@SuppressWarnings("unused")
+public class SearchHistory {
+    private static final int MAX_DEPTH = 32;
+    private final Deque<Result> results = new ArrayDeque<>(MAX_DEPTH);
+    private final SearchIndex index;
+
+    public SearchHistory(@NotNull SearchIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Search using the most recent result this query refines, or the whole index if none.
+     * Call getIndex().prepare() first if not on the render thread !
+     * @param query A valid query.
+     * @return Ascending entry id, don't modify it, it's kept for the next search !
+     */
+    public synchronized int @NotNull [] search(@NotNull SearchQuery query) {
+        // Step back until a previous query contains this one (backspace or different filter).
+        while (!this.results.isEmpty() && !query.refines(this.results.peek().query())) {
+            this.results.pop();
+        }
+
+        int[] hits;
+        var previous = this.results.peek();
+        if (previous == null) {
+            hits = this.index.search(query);
+        } else if (previous.query().getFilter().equals(query.getFilter())) {
+            return previous.hits();
+        } else {
+            hits = this.index.search(query, previous.hits());
+        }
+
+        this.results.push(new Result(query, hits));
+        if (this.results.size() > MAX_DEPTH) {
+            this.results.removeLast();
+        }
+        return hits;
+    }
+
+    public synchronized void clear() {
+        this.results.clear();
+    }
+
+    public @NotNull SearchIndex getIndex() {
+        return this.index;
+    }
+
+    private record Result(SearchQuery query, int[] hits) { }
+}
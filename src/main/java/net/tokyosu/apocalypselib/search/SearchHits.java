@@ -0,0 +1,67 @@
+package net.tokyosu.apocalypselib.search;
+
+import net.minecraft.world.item.ItemStack;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Search result read in place, entry ids of one or several indexes.
+ * The ItemStack of a hit is only created when get() is called, so only the shown cells become stacks.
+ */
+@SuppressWarnings("unused")
+public final class SearchHits extends AbstractList<ItemStack> implements RandomAccess {
+    private final SearchIndex[] indexes;
+    private final int[] owners; // Position in indexes of each hit, null if there is a single index.
+    private final int[] ids;
+    private final int size;
+    private final boolean createsStacks;
+
+    /**
+     * @param index The searched index.
+     * @param ids Entry id of each hit, in the shown order, not copied so don't modify it.
+     */
+    public SearchHits(@NotNull SearchIndex index, int @NotNull [] ids) {
+        this(new SearchIndex[] { index }, null, ids, ids.length);
+    }
+
+    /**
+     * @param indexes The searched indexes.
+     * @param owners Position in indexes of each hit, or null if there is a single index.
+     * @param ids Entry id of each hit.
+     * @param size Number of hits, the arrays can be longer.
+     */
+    public SearchHits(@NotNull SearchIndex @NotNull [] indexes, int @Nullable [] owners, int @NotNull [] ids, int size) {
+        this.indexes = indexes;
+        this.owners = owners;
+        this.ids = ids;
+        this.size = size;
+        boolean creates = true;
+        for (var index : indexes) {
+            creates &= index.createsStacks();
+        }
+        this.createsStacks = creates;
+    }
+
+    @Override
+    public @NotNull ItemStack get(int position) {
+        if (position < 0 || position >= this.size) throw new IndexOutOfBoundsException(position);
+        var index = this.indexes[this.owners != null ? this.owners[position] : 0];
+        return index.getStack(this.ids[position]);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Does get() create a new stack each call ? True if every index was built from a CatalogSegment,
+     * the stacks then don't need to be copied before being shown.
+     */
+    public boolean createsStacks() {
+        return this.createsStacks;
+    }
+}
@@ -0,0 +1,470 @@
+package net.tokyosu.apocalypselib.search;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.world.item.ItemStack;
+import net.tokyosu.apocalypselib.ApocalypseLib;
+import net.tokyosu.apocalypselib.utils.ModUtils;
+import net.tokyosu.apocalypselib.tab.CatalogSegment;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Search index over a catalog of ItemStack, built once from a collected tab.
+ * Queries are compiled into a SearchQuery, then verified entry by entry with the cheapest fields first.
+ * When a query contains a text term, candidates come from trigram postings built over the name, registry name,
+ * enchantments and tooltip, so the result is the same as checking every stack, in the same order.
+ */
+@SuppressWarnings("unused")
+public class SearchIndex {
+    private static final int[] NO_HITS = new int[0];
+    private static final Map<String, SearchIndex> SHARED = new ConcurrentHashMap<>(); // Last index of each namespace, see of().
+    private final Collection<ItemStack> source;
+    private final SearchEntry[] entries;
+    private final int tooltipVersion;
+    private final int[][] orders = new int[SortOrder.values().length][]; // Entry id sorted by each SortOrder, built when first asked.
+    private volatile Long2ObjectOpenHashMap<int[]> postings;
+    private Long2ObjectOpenHashMap<IntArrayList> building; // Postings not finished yet, render thread only.
+    private int buildingNext = 0;
+    private long buildingTime = 0;
+    private volatile int tagsNext = 0; // Entries whose item tags are extracted, render thread only.
+
+    private SearchIndex(@NotNull Collection<ItemStack> source, @NotNull SearchEntry[] entries, int tooltipVersion) {
+        this.source = source;
+        this.entries = entries;
+        this.tooltipVersion = tooltipVersion;
+    }
+
+    /**
+     * Build an index from a collected list, only cheap fields are extracted here, tooltips are created by prepare().
+     * A CatalogSegment is read in place, no ItemStack is kept (see SearchEntry).
+     * @param items A valid item list, the order is kept for the results.
+     * @return A valid SearchIndex.
+     */
+    public static @NotNull SearchIndex build(@NotNull Collection<ItemStack> items) {
+        int tooltipVersion = TooltipCache.getVersion();
+        Map<String, char[]> modNames = new HashMap<>();
+        Function<String, char[]> modName = namespace -> modNames.computeIfAbsent(namespace, key -> FoldedPattern.fold(ModUtils.getModName(key)));
+        SearchEntry[] entries = new SearchEntry[items.size()];
+        if (items instanceof CatalogSegment segment) {
+            for (int id = 0; id < entries.length; id++) {
+                entries[id] = new SearchEntry(segment, id, modName);
+            }
+        } else {
+            int id = 0;
+            for (var stack : items) {
+                entries[id++] = new SearchEntry(stack, modName);
+            }
+        }
+        return new SearchIndex(items, entries, tooltipVersion);
+    }
+
+    /**
+     * Index of entries created by hand, used by the tests. Never valid for any list.
+     */
+    static @NotNull SearchIndex of(@NotNull SearchEntry @NotNull [] entries) {
+        return new SearchIndex(List.of(), entries, -1);
+    }
+
+    /**
+     * Get the index of a list, a CatalogSegment index is shared (by namespace) so every grid and the warm-up use the same one,
+     * it's only built again when the segment or the tooltips changed. Other lists get a new index.
+     * Must be called on the render thread.
+     * @param items A valid item list.
+     * @return A valid SearchIndex.
+     */
+    public static @NotNull SearchIndex of(@NotNull Collection<ItemStack> items) {
+        if (!(items instanceof CatalogSegment segment)) return build(items);
+        var index = SHARED.get(segment.getNamespace());
+        if (index == null || !index.isValidFor(segment)) {
+            index = build(segment);
+            SHARED.put(segment.getNamespace(), index);
+        }
+        return index;
+    }
+
+    /**
+     * Create what the query need before searching (tooltips and postings, item tags), must be called on the render thread
+     * since it create tooltips and read the tags. Only done once, next calls do nothing.
+     * @param query A valid query.
+     */
+    public void prepare(@NotNull SearchQuery query) {
+        this.prepareStep(query, Long.MAX_VALUE);
+    }
+
+    /**
+     * Is this index ready to be searched with this query outside the render thread ? If not, call prepare() first.
+     */
+    public boolean isPrepared(@NotNull SearchQuery query) {
+        return (!query.needsTooltip() || this.postings != null) && (!query.needsTags() || this.tagsNext == this.entries.length);
+    }
+
+    /**
+     * Same as prepare(), but stop at a deadline, the next call continue where it stopped. Render thread only.
+     * @param query A valid query.
+     * @param deadline System.nanoTime() to stop at, checked every few entries.
+     * @return True once the index is prepared for the query.
+     */
+    public boolean prepareStep(@NotNull SearchQuery query, long deadline) {
+        if (query.needsTags()) {
+            while (this.tagsNext < this.entries.length) {
+                this.entries[this.tagsNext].getTags();
+                this.tagsNext++; // Only the render thread write it.
+                if ((this.tagsNext & 15) == 0 && System.nanoTime() >= deadline) return false;
+            }
+        }
+        return !query.needsTooltip() || this.prepareStep(deadline);
+    }
+
+    /**
+     * Build a part of the postings (creating the tooltips), so it can be spread over several ticks (see CatalogWarmup).
+     * The next call or prepare() continue where it stopped, render thread only.
+     * @param deadline System.nanoTime() to stop at, checked every few entries.
+     * @return True once the postings are built.
+     */
+    public boolean prepareStep(long deadline) {
+        if (this.postings != null) return true;
+        long startTime = System.nanoTime();
+        if (this.building == null) {
+            this.building = new Long2ObjectOpenHashMap<>();
+        }
+
+        while (this.buildingNext < this.entries.length) {
+            this.addPostings(this.buildingNext++);
+            if ((this.buildingNext & 15) == 0 && System.nanoTime() >= deadline) {
+                this.buildingTime += System.nanoTime() - startTime;
+                return false;
+            }
+        }
+
+        Long2ObjectOpenHashMap<int[]> postings = new Long2ObjectOpenHashMap<>(this.building.size());
+        for (var entry : this.building.long2ObjectEntrySet()) {
+            postings.put(entry.getLongKey(), entry.getValue().toIntArray());
+        }
+        this.building = null;
+        this.buildingTime += System.nanoTime() - startTime;
+        this.postings = postings;
+
+        ApocalypseLib.LOGGER.debug("Built SearchIndex of {} items ({} trigrams) in {} ms, tooltip cache hit rate: {}", this.entries.length, postings.size(), this.buildingTime / 1_000_000.0, TooltipCache.getHitRate());
+        return true;
+    }
+
+    private void addPostings(int entryId) {
+        var building = this.building;
+        this.entries[entryId].forEachTextField(text -> {
+            for (int i = 0; i + 3 <= text.length; i++) {
+                var list = building.computeIfAbsent(trigram(text, i), k -> new IntArrayList(4));
+                // Entries are added in order, so checking the last one is enough to avoid duplicates.
+                if (list.isEmpty() || list.getInt(list.size() - 1) != entryId) {
+                    list.add(entryId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Find every entry matching a search filter.
+     * @param searchFilter A valid search filter, empty return everything.
+     * @return Ascending entry id, use getStack() to get the ItemStack.
+     */
+    public int @NotNull [] search(@NotNull String searchFilter) {
+        return this.search(SearchQuery.compile(searchFilter));
+    }
+
+    /**
+     * Find every entry matching a query.
+     * Call prepare() first if not on the render thread !
+     * @param query A valid query, empty return everything.
+     * @return Ascending entry id, use getStack() to get the ItemStack.
+     */
+    public int @NotNull [] search(@NotNull SearchQuery query) {
+        return this.search(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Find the first entries matching a query, stop as soon as enough are found.
+     * Call prepare() first if not on the render thread !
+     * @param query A valid query, empty return everything.
+     * @param limit Max entries returned.
+     * @return Ascending entry id, use getStack() to get the ItemStack.
+     */
+    public int @NotNull [] search(@NotNull SearchQuery query, int limit) {
+        this.prepare(query);
+        var required = query.getRequiredText();
+        if (required == null || required.length() < 3) {
+            return this.verify(query, null, this.entries.length, limit);
+        }
+
+        // Collect the postings of each trigram, any missing trigram mean nothing can match.
+        var requiredChars = required.getChars();
+        int[][] lists = new int[requiredChars.length - 2][];
+        for (int i = 0; i < lists.length; i++) {
+            var list = this.postings.get(trigram(requiredChars, i));
+            if (list == null) return NO_HITS;
+            lists[i] = list;
+        }
+
+        // Intersect starting with the smallest list to keep the candidates low.
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] candidates = lists[0];
+        int count = candidates.length;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            if (candidates == lists[0]) {
+                candidates = Arrays.copyOf(candidates, count); // Never write inside the postings.
+            }
+            count = intersect(candidates, count, lists[i]);
+        }
+
+        // Trigrams only tell the text may be inside, verify the whole query for real.
+        return this.verify(query, candidates, count, limit);
+    }
+
+    /**
+     * Find every entry matching a query among a previous result.
+     * Used when the query is refined, since it can only match a subset of the previous hits.
+     * @param query A valid query.
+     * @param candidates Ascending entry id returned by a previous search.
+     * @return Ascending entry id, use getStack() to get the ItemStack.
+     */
+    public int @NotNull [] search(@NotNull SearchQuery query, int @NotNull [] candidates) {
+        this.prepare(query);
+        return this.verify(query, candidates, candidates.length, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Find every entry matching a query, the best matches first (see SearchEntry.scoreText()).
+     * Only the rankedCount best entries are ordered using a bounded heap, the other matches follow in the index order,
+     * so the cost stay close to a normal search even with a large tab.
+     * Call prepare() first if not on the render thread !
+     * @param query A valid query.
+     * @param fuzzy Allow typos in plain terms.
+     * @param rankedCount How many entries are ordered by score, use the visible slots count (or a few pages).
+     * @return Entry id, ranked first then ascending.
+     */
+    public int @NotNull [] searchRanked(@NotNull SearchQuery query, boolean fuzzy, int rankedCount) {
+        this.prepare(query);
+        int found = 0;
+        int[] hits = new int[this.entries.length];
+        long[] heap = new long[Math.max(1, rankedCount)];
+        int heapSize = 0;
+
+        for (int id = 0; id < this.entries.length; id++) {
+            int score = query.score(this.entries[id], fuzzy);
+            if (score < 0) continue;
+            hits[found++] = id;
+
+            // Higher score first, then lower id first, packed so a single long compare is enough.
+            long key = ((long) score << 32) | (Integer.MAX_VALUE - id);
+            if (heapSize < heap.length) {
+                heap[heapSize] = key;
+                siftUp(heap, heapSize++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, heapSize);
+            }
+        }
+
+        // Ranked entries first (best to worst), then the remaining hits in order.
+        Arrays.sort(heap, 0, heapSize);
+        int[] ranked = new int[heapSize];
+        int[] result = new int[found];
+        for (int i = 0; i < heapSize; i++) {
+            int id = Integer.MAX_VALUE - (int) heap[heapSize - 1 - i];
+            result[i] = id;
+            ranked[i] = id;
+        }
+        Arrays.sort(ranked);
+
+        int count = heapSize;
+        int rankedIndex = 0;
+        for (int i = 0; i < found; i++) {
+            int id = hits[i];
+            if (rankedIndex < ranked.length && ranked[rankedIndex] == id) {
+                rankedIndex++;
+                continue;
+            }
+            result[count++] = id;
+        }
+        return result;
+    }
+
+    private static void siftUp(long @NotNull [] heap, int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= key) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private static void siftDown(long @NotNull [] heap, int size) {
+        int index = 0;
+        long key = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= key) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+
+    /**
+     * Get every entry id sorted by an order, built once per index (so once per catalog version) then shared.
+     * @param order A sort order.
+     * @return Entry id in this order, don't modify it !
+     */
+    public synchronized int @NotNull [] getOrder(@NotNull SortOrder order) {
+        var sorted = this.orders[order.ordinal()];
+        if (sorted == null) {
+            sorted = this.buildOrder(order);
+            this.orders[order.ordinal()] = sorted;
+        }
+        return sorted;
+    }
+
+    private int @NotNull [] buildOrder(@NotNull SortOrder order) {
+        int[] sorted = new int[this.entries.length];
+        for (int id = 0; id < sorted.length; id++) {
+            sorted[id] = id;
+        }
+        if (order == SortOrder.CATALOG || order == SortOrder.MOD) return sorted; // A single namespace, so a single mod.
+
+        // Keys are read once here, the comparator only compare them. Every key is plain data extracted when the entries
+        // were created on the render thread, so an order can be built by the search thread.
+        int[] rarities = order == SortOrder.RARITY ? new int[sorted.length] : null;
+        if (rarities != null) {
+            for (int id = 0; id < sorted.length; id++) {
+                rarities[id] = this.entries[id].getRarityRank();
+            }
+        }
+        IntArrays.quickSort(sorted, (a, b) -> {
+            int result = 0;
+            if (rarities != null) result = Integer.compare(rarities[a], rarities[b]);
+            if (result == 0) {
+                result = order == SortOrder.ID
+                        ? Arrays.compare(this.entries[a].getId(), this.entries[b].getId())
+                        : Arrays.compare(this.entries[a].getName(), this.entries[b].getName());
+            }
+            return result != 0 ? result : Integer.compare(a, b);
+        });
+        return sorted;
+    }
+
+    /**
+     * Put search hits in a sort order, the hits are merged with the sorted entries (getOrder()) instead of being sorted.
+     * @param hits Ascending entry id, returned by search().
+     * @param order A sort order.
+     * @return Entry id in this order, hits itself for the catalog order.
+     */
+    public int @NotNull [] sort(int @NotNull [] hits, @NotNull SortOrder order) {
+        if (order == SortOrder.CATALOG || order == SortOrder.MOD || hits.length <= 1) return hits;
+        var sorted = this.getOrder(order);
+        if (hits.length == sorted.length) return sorted;
+
+        long[] matched = new long[(this.entries.length + 63) >>> 6];
+        for (int id : hits) {
+            matched[id >>> 6] |= 1L << id;
+        }
+        int[] result = new int[hits.length];
+        int count = 0;
+        for (int i = 0; i < sorted.length && count < result.length; i++) {
+            int id = sorted[i];
+            if ((matched[id >>> 6] & (1L << id)) != 0) {
+                result[count++] = id;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check the query against candidates.
+     * @param candidates Entry id to check, null to check every entry.
+     * @param count Number of candidates to check.
+     * @param limit Stop once this many hits are found.
+     */
+    private int @NotNull [] verify(@NotNull SearchQuery query, int @Nullable [] candidates, int count, int limit) {
+        int found = 0;
+        int[] hits = new int[Math.min(count, limit)];
+        for (int i = 0; i < count && found < hits.length; i++) {
+            int id = candidates != null ? candidates[i] : i;
+            if (query.matches(this.entries[id])) {
+                hits[found++] = id;
+            }
+        }
+        return found == hits.length ? hits : Arrays.copyOf(hits, found);
+    }
+
+    /**
+     * Intersect two ascending lists, the result is written inside the first one.
+     * @return The number of entries kept in a.
+     */
+    private static int intersect(int @NotNull [] a, int countA, int @NotNull [] b) {
+        int i = 0, j = 0, count = 0;
+        while (i < countA && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                a[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static long trigram(char @NotNull [] text, int index) {
+        return ((long) text[index] << 32) | ((long) text[index + 1] << 16) | text[index + 2];
+    }
+
+    /**
+     * The list this index was built from, used to know if the index need to be rebuilt.
+     */
+    public @NotNull Collection<ItemStack> getSource() {
+        return this.source;
+    }
+
+    /**
+     * Does this index is still valid for this list ? (same list and the tooltips didn't change)
+     * @param items The list that should be searched.
+     * @return True if it can be used, false if it need to be built again.
+     */
+    public boolean isValidFor(@NotNull Collection<ItemStack> items) {
+        return this.source == items && this.tooltipVersion == TooltipCache.getVersion();
+    }
+
+    public @NotNull SearchEntry getEntry(int id) {
+        return this.entries[id];
+    }
+
+    /**
+     * Get the stack of an entry, for a CatalogSegment it's a new stack each call, see createsStacks().
+     */
+    public @NotNull ItemStack getStack(int id) {
+        return this.entries[id].getStack();
+    }
+
+    /**
+     * Does getStack() create a new stack each call ? True when built from a CatalogSegment, else the list stacks are given.
+     */
+    public boolean createsStacks() {
+        return this.source instanceof CatalogSegment;
+    }
+
+    public int size() {
+        return this.entries.length;
+    }
+}
@@ -0,0 +1,234 @@
+package net.tokyosu.apocalypselib.search;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A search filter compiled once into a list of predicates.
+ * Syntax:
+ * - "iron ingot": every term must match (AND), a plain term search the name, registry name, enchantments and tooltip.
+ * - "iron | gold": any group can match (OR).
+ * - "@create": mod id or mod name.
+ * - "#logs": item tag.
+ * - "$fire": tooltip only.
+ * - "-iron": the term must not match, can be used with any prefix ("-@minecraft").
+ * Inside a group, terms are evaluated from the cheapest field to the most expensive one.
+ * Groups and terms are kept in plain arrays (a for-each over an array doesn't create an iterator), so matching and scoring
+ * a compiled query against a prepared SearchEntry (tooltip and tags already extracted) doesn't allocate anything.
+ */
+@SuppressWarnings("unused")
+public final class SearchQuery {
+    private static final SearchQuery EMPTY = new SearchQuery("", new Term[0][]);
+    private final String filter;
+    private final Term[][] groups; // Any group (OR) of terms (AND), never modified.
+
+    private SearchQuery(@NotNull String filter, @NotNull Term @NotNull [] @NotNull [] groups) {
+        this.filter = filter;
+        this.groups = groups;
+    }
+
+    /**
+     * Compile a search filter.
+     * @param searchFilter A valid search filter, folded here.
+     * @return A valid SearchQuery, empty if there is no term.
+     */
+    public static @NotNull SearchQuery compile(@NotNull String searchFilter) {
+        var filter = new String(FoldedPattern.fold(searchFilter)).trim();
+        if (filter.isEmpty()) return EMPTY;
+
+        List<Term[]> groups = new ArrayList<>();
+        for (var groupText : filter.split("\\|")) {
+            List<Term> terms = new ArrayList<>();
+            for (var termText : groupText.trim().split("\\s+")) {
+                var term = Term.parse(termText);
+                if (term != null) {
+                    terms.add(term);
+                }
+            }
+            if (!terms.isEmpty()) {
+                terms.sort(Comparator.comparingInt(term -> term.field().cost));
+                groups.add(terms.toArray(new Term[0]));
+            }
+        }
+        return groups.isEmpty() ? EMPTY : new SearchQuery(filter, groups.toArray(new Term[0][]));
+    }
+
+    /**
+     * Does this query match everything ? (nothing to filter)
+     */
+    public boolean isEmpty() {
+        return this.groups.length == 0;
+    }
+
+    public @NotNull String getFilter() {
+        return this.filter;
+    }
+
+    public boolean matches(@NotNull SearchEntry entry) {
+        if (this.groups.length == 0) return true;
+        for (var group : this.groups) {
+            if (matchesGroup(group, entry)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesGroup(@NotNull Term @NotNull [] group, @NotNull SearchEntry entry) {
+        for (var term : group) {
+            if (term.matches(entry) == term.negated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Score an entry for ranked results, plain terms can be fuzzy, other terms must match exactly.
+     * @param entry A valid entry.
+     * @param fuzzy Allow edits in plain terms (typo).
+     * @return The best score of the matching groups, or -1 if nothing match.
+     */
+    public int score(@NotNull SearchEntry entry, boolean fuzzy) {
+        if (this.groups.length == 0) return 0;
+        int best = -1;
+        for (var group : this.groups) {
+            int score = scoreGroup(group, entry, fuzzy);
+            if (score > best) best = score;
+        }
+        return best;
+    }
+
+    private static int scoreGroup(@NotNull Term @NotNull [] group, @NotNull SearchEntry entry, boolean fuzzy) {
+        int total = 0;
+        for (var term : group) {
+            if (term.field() == Field.TEXT && !term.negated()) {
+                int score = entry.scoreText(term.pattern(), fuzzy ? term.fuzzy() : null, term.enchantments());
+                if (score < 0) return -1;
+                total += score;
+            } else if (term.matches(entry) == term.negated()) {
+                return -1;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Does a term need the tooltip of the entries ? If yes, SearchIndex.prepare() need to be called on the render thread.
+     */
+    public boolean needsTooltip() {
+        for (var group : this.groups) {
+            for (var term : group) {
+                if (term.field() == Field.TEXT || term.field() == Field.TOOLTIP) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Does a term need the item tags of the entries ? If yes, SearchIndex.prepare() need to be called on the render thread.
+     */
+    public boolean needsTags() {
+        for (var group : this.groups) {
+            for (var term : group) {
+                if (term.field() == Field.TAG) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the longest text that every match must contain, used to find candidates with the trigram postings.
+     * @return A pattern, or null if the query can't be narrowed by the postings (OR, negation or only @/# terms).
+     */
+    public @Nullable FoldedPattern getRequiredText() {
+        if (this.groups.length != 1) return null;
+        FoldedPattern required = null;
+        for (var term : this.groups[0]) {
+            if (!term.negated() && (term.field() == Field.TEXT || term.field() == Field.TOOLTIP)) {
+                if (required == null || term.pattern().length() > required.length()) {
+                    required = term.pattern();
+                }
+            }
+        }
+        return required;
+    }
+
+    /**
+     * Can this query only match a subset of what the previous query matched ? (the user added characters or terms)
+     * @param previous The previous query.
+     * @return True if searching inside the previous results give the same result as searching everything.
+     */
+    public boolean refines(@NotNull SearchQuery previous) {
+        if (this.filter.equals(previous.filter) || previous.groups.length == 0) return true;
+        if (this.groups.length != 1 || previous.groups.length != 1) return false;
+
+        var group = this.groups[0];
+        for (var old : previous.groups[0]) {
+            boolean found = false;
+            for (var term : group) {
+                if (term.field() == old.field() && term.negated() == old.negated()
+                        // A longer term match less, a shorter negated term exclude more.
+                        && (old.negated() ? old.value().contains(term.value()) : term.value().contains(old.value()))) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    public enum Field {
+        MOD(0),
+        TEXT(1),
+        TAG(2),
+        TOOLTIP(3);
+
+        private final int cost;
+
+        Field(int cost) {
+            this.cost = cost;
+        }
+    }
+
+    public record Term(Field field, FoldedPattern pattern, @Nullable FuzzyPattern fuzzy, @Nullable EnchantmentTable.Matcher enchantments, boolean negated) {
+        private static @Nullable Term parse(@NotNull String text) {
+            boolean negated = text.startsWith("-");
+            if (negated) text = text.substring(1);
+
+            var field = Field.TEXT;
+            if (text.startsWith("@")) field = Field.MOD;
+            else if (text.startsWith("#")) field = Field.TAG;
+            else if (text.startsWith("$")) field = Field.TOOLTIP;
+            if (field != Field.TEXT) text = text.substring(1);
+
+            // A prefix alone (still typing) doesn't filter anything.
+            if (text.isEmpty()) return null;
+            var pattern = new FoldedPattern(text);
+            if (field != Field.TEXT) return new Term(field, pattern, null, null, negated);
+            return new Term(field, pattern, FuzzyPattern.create(pattern.getChars()), new EnchantmentTable.Matcher(pattern), negated);
+        }
+
+        public @NotNull String value() {
+            return this.pattern.getValue();
+        }
+
+        public boolean matches(@NotNull SearchEntry entry) {
+            return switch (this.field) {
+                case MOD -> entry.matchesMod(this.pattern);
+                case TEXT -> entry.matchesText(this.pattern, this.enchantments);
+                case TAG -> this.pattern.isIn(entry.getTags());
+                case TOOLTIP -> this.pattern.isIn(entry.getTooltip());
+            };
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package net.tokyosu.apocalypselib.search;
+
+/**
+ * Order of the items shown in a grid, see SearchIndex.getOrder().
+ * Entries with the same key keep the catalog order.
+ */
+public enum SortOrder {
+    CATALOG, // Creative tab order.
+    NAME,    // Display name.
+    ID,      // Registry name.
+    RARITY,  // Rarity (common first), then display name.
+    MOD      // Mod display name, then catalog order.
+}
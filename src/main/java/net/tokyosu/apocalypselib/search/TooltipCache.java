@@ -0,0 +1,202 @@
+package net.tokyosu.apocalypselib.search;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.TooltipFlag;
+import net.tokyosu.apocalypselib.ApocalypseLib;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded cache of the folded (lowercase) tooltip text of a stack, keyed by item and nbt content (not by ItemStack instance).
+ * Least recently used entries are dropped once the cache is full.
+ * The whole cache is cleared when the language or the advanced tooltips option change, since the text is not valid anymore.
+ */
+@SuppressWarnings("unused")
+public final class TooltipCache {
+    private static final int DEFAULT_MAX_SIZE = 8192;
+    private static final Map<Key, String> CACHE = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+            if (size() > maxSize) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+    private static int maxSize = DEFAULT_MAX_SIZE;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+    private static int version;
+    private static String language;
+    private static boolean advancedTooltips;
+
+    /**
+     * Get the tooltip text of a stack, the tooltip is only created if not cached.
+     * @param stack A valid ItemStack.
+     * @return Each tooltip line folded and separated by a new line, or empty if there is no player.
+     */
+    public static @NotNull String get(@NotNull ItemStack stack) {
+        var mc = Minecraft.getInstance();
+        if (mc.player == null) return "";
+
+        var lookup = new Key(stack.getItem(), stack.getTag());
+        boolean advanced;
+        synchronized (CACHE) {
+            validate(mc);
+            advanced = advancedTooltips;
+            var text = CACHE.get(lookup);
+            if (text != null) {
+                hits++;
+                return text;
+            }
+            misses++;
+        }
+
+        // Create the tooltip outside the lock, only the render thread is allowed to do it anyway.
+        var flag = advanced ? TooltipFlag.Default.ADVANCED : TooltipFlag.Default.NORMAL;
+        var builder = new StringBuilder(64);
+        for (var line : stack.getTooltipLines(mc.player, flag)) {
+            if (!builder.isEmpty()) builder.append('\n');
+            builder.append(FoldedPattern.fold(line.getString()));
+        }
+        var text = builder.toString();
+
+        synchronized (CACHE) {
+            // Copy the tag, the stack may be modified later and break the key.
+            CACHE.put(new Key(lookup.item(), lookup.tag() != null ? lookup.tag().copy() : null), text);
+        }
+        return text;
+    }
+
+    /**
+     * Get the tooltip text of a stack only if it's already cached, never create it and doesn't count as a lookup.
+     * @param stack A valid ItemStack.
+     * @return The cached text, or null if not cached.
+     */
+    public static @Nullable String peek(@NotNull ItemStack stack) {
+        synchronized (CACHE) {
+            validate(Minecraft.getInstance());
+            return CACHE.get(new Key(stack.getItem(), stack.getTag()));
+        }
+    }
+
+    /**
+     * Add a tooltip text created before (saved catalog), it must match the current language and tooltip option !
+     * @param stack A valid ItemStack, its tag is copied.
+     * @param text The text returned by get() for this stack.
+     */
+    public static void put(@NotNull ItemStack stack, @NotNull String text) {
+        synchronized (CACHE) {
+            validate(Minecraft.getInstance());
+            var tag = stack.getTag();
+            CACHE.put(new Key(stack.getItem(), tag != null ? tag.copy() : null), text);
+        }
+    }
+
+    /**
+     * Clear the cache if the language or the advanced tooltips option changed since the last call.
+     */
+    private static void validate(@NotNull Minecraft mc) {
+        var currentLanguage = mc.getLanguageManager().getSelected();
+        var currentAdvanced = mc.options.advancedItemTooltips;
+        if (!Objects.equals(language, currentLanguage) || advancedTooltips != currentAdvanced) {
+            if (language != null) {
+                ApocalypseLib.LOGGER.debug("Tooltip cache cleared, language: {}, advanced tooltips: {}", currentLanguage, currentAdvanced);
+            }
+            language = currentLanguage;
+            advancedTooltips = currentAdvanced;
+            invalidate();
+        }
+    }
+
+    /**
+     * Clear all cached tooltips, anything built from them (SearchIndex) should check getVersion() to know it's outdated.
+     */
+    public static void invalidate() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            version++;
+        }
+    }
+
+    /**
+     * Change the number of tooltips kept, older entries are removed on the next insertion.
+     * @param size Max entries count (default 8192).
+     */
+    public static void setMaxSize(int size) {
+        synchronized (CACHE) {
+            maxSize = Math.max(1, size);
+        }
+    }
+
+    /**
+     * Raise the number of tooltips kept, never lower it, used by the warm-up so it doesn't drop its own tooltips.
+     * @param size Min entries count.
+     */
+    public static void ensureMaxSize(int size) {
+        synchronized (CACHE) {
+            maxSize = Math.max(maxSize, size);
+        }
+    }
+
+    /**
+     * Incremented each time the cache is cleared, also check if the language or tooltip option changed.
+     */
+    public static int getVersion() {
+        synchronized (CACHE) {
+            validate(Minecraft.getInstance());
+            return version;
+        }
+    }
+
+    public static long getHits() {
+        synchronized (CACHE) {
+            return hits;
+        }
+    }
+
+    public static long getMisses() {
+        synchronized (CACHE) {
+            return misses;
+        }
+    }
+
+    public static long getEvictions() {
+        synchronized (CACHE) {
+            return evictions;
+        }
+    }
+
+    /**
+     * Get the ratio of lookups that found a cached tooltip.
+     * @return Between 0 and 1, or 0 if nothing was asked yet.
+     */
+    public static double getHitRate() {
+        synchronized (CACHE) {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    public static void resetStats() {
+        synchronized (CACHE) {
+            hits = 0;
+            misses = 0;
+            evictions = 0;
+        }
+    }
+
+    /**
+     * CompoundTag equals() and hashCode() compare the content, so two copies of the same stack share the entry.
+     */
+    private record Key(Item item, @Nullable CompoundTag tag) { }
+}
@@ -0,0 +1,332 @@
+package net.tokyosu.apocalypselib.tab;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import net.minecraft.SharedConstants;
+import net.minecraft.client.Minecraft;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.flag.FeatureFlags;
+import net.minecraft.world.item.ItemStack;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.tokyosu.apocalypselib.ApocalypseLib;
+import net.tokyosu.apocalypselib.search.TooltipCache;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Save the collected namespaces (TabCollector segments) and the tooltip text used by the search index into a binary file
+ * inside the game directory, so the next launch doesn't need to collect the tabs or create the tooltips again.
+ * The file is keyed by a hash of everything the catalog depend on (mods and versions, Minecraft version, config files size
+ * and time, resource packs, language, tooltip option, feature flags, operator tab and server item tags), only the header
+ * is read to know if it's outdated. The key only use cheap inputs, it's computed again after each invalidation.
+ */
+@SuppressWarnings("unused")
+public final class CatalogCache {
+    private static final int MAGIC = 0x41504354; // "APCT"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static long currentKey;
+    private static int keyTooltipVersion = -1; // TooltipCache version the tooltips of currentKey belong to.
+    private static long modsHash = 0; // Mods can't change while the game run, hashed once.
+    private static int tagGeneration = 0; // Incremented each time the server send the item tags.
+    private static int hashedTagGeneration = -1;
+    private static long tagsHash;
+    private static long savedMisses = -1;
+    private static int savedNamespaces = -1;
+    private static volatile boolean collected = false;
+
+    /**
+     * Make sure the TabCollector catalog is valid, in order: keep it if nothing changed since the last call,
+     * load the namespaces saved in the file, and route the tabs if the file doesn't contain every namespace.
+     * Must be called on the render thread.
+     */
+    public static void loadOrCollect() {
+        var mc = Minecraft.getInstance();
+        if (mc.player == null) {
+            TabCollector.routeAllTabs();
+            collected = false;
+            return;
+        }
+
+        long key = computeKey(mc);
+        if (collected && key == currentKey && !TabCollector.isEmpty()) return;
+
+        long startTime = System.nanoTime();
+        var catalog = load(key);
+        if (catalog == null || !catalog.complete()) {
+            TabCollector.routeAllTabs();
+        }
+        if (catalog != null) {
+            TabCollector.setCollected(catalog.items(), catalog.complete());
+            ApocalypseLib.LOGGER.debug("Loaded {} namespaces from {} in {} ms", catalog.items().size(), getPath(), (System.nanoTime() - startTime) / 1_000_000.0);
+        }
+        savedNamespaces = catalog != null ? catalog.items().size() : 0;
+        savedMisses = TooltipCache.getMisses();
+        currentKey = key;
+        keyTooltipVersion = TooltipCache.getVersion(); // After load(), the first TooltipCache use can clear it.
+        collected = true;
+    }
+
+    /**
+     * Forget the loaded catalog, the next loadOrCollect() compute the key again and collect the tabs again,
+     * the file is only used if its key still match (same server tags, feature flags...).
+     * Called by TabCollector.invalidate().
+     */
+    public static void invalidate() {
+        collected = false;
+    }
+
+    /**
+     * The server sent new item tags, they are hashed again by the next key. Called by CatalogEvents.
+     */
+    public static void onTagsUpdated() {
+        tagGeneration++;
+    }
+
+    /**
+     * Save the collected namespaces with every tooltip created since they were loaded or collected.
+     * Call it when the creative panel is closed, the file is written on the catalog thread.
+     * Nothing is written if nothing was collected and no tooltip was created since the last save.
+     */
+    public static void saveTooltips() {
+        var segments = TabCollector.getCatalog();
+        if (!collected || segments.isEmpty()) return;
+
+        // Advanced tooltips (F3+H) or the language can change without invalidating the catalog,
+        // the cleared tooltips then belong to another key. The collected items are the same.
+        int tooltipVersion = TooltipCache.getVersion();
+        if (tooltipVersion != keyTooltipVersion) {
+            currentKey = computeKey(Minecraft.getInstance());
+            keyTooltipVersion = tooltipVersion;
+            savedMisses = -1;
+        }
+        if (TooltipCache.getMisses() != savedMisses || segments.size() != savedNamespaces) {
+            save(currentKey, tooltipVersion);
+        }
+    }
+
+    public static @NotNull Path getPath() {
+        return FMLPaths.GAMEDIR.get().resolve(ApocalypseLib.MOD_ID).resolve("catalog.bin");
+    }
+
+    /**
+     * Load the catalog file, its tooltips are added to the TooltipCache.
+     * @param key The current key, the file is ignored if it was saved with another key.
+     * @return The saved namespaces, or null if the file is missing, outdated or invalid.
+     */
+    private static @Nullable Catalog load(long key) {
+        var path = getPath();
+        if (!Files.isRegularFile(path)) return null;
+
+        // Read once from start to end, a plain buffered stream doesn't keep the file open or mapped after loading.
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (Files.size(path) < HEADER_SIZE) return null;
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || input.readLong() != key) {
+                ApocalypseLib.LOGGER.debug("Catalog file {} is outdated", path);
+                return null;
+            }
+
+            Map<String, CatalogSegment> items = new HashMap<>();
+            var interner = TabCollector.getInterner();
+            boolean complete = input.readBoolean();
+            int namespaceCount = input.readInt();
+            for (int i = 0; i < namespaceCount; i++) {
+                var namespace = input.readUTF();
+                int count = input.readInt();
+                var builder = new CatalogSegment.Builder(namespace, count, interner);
+                for (int j = 0; j < count; j++) {
+                    var stack = ItemStack.of(NbtIo.read(input));
+                    var tooltip = readText(input);
+                    if (stack.isEmpty()) continue; // Item removed or renamed.
+                    if (tooltip != null) {
+                        TooltipCache.put(stack, tooltip);
+                    }
+                    builder.add(stack);
+                }
+                if (builder.size() > 0) {
+                    items.put(namespace, builder.build());
+                }
+            }
+
+            return items.isEmpty() ? null : new Catalog(items, complete);
+        } catch (IOException | RuntimeException e) {
+            ApocalypseLib.LOGGER.error("Failed to load the catalog file {}", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Take the published catalog (immutable, so no copy), then write it on the catalog thread.
+     */
+    private static void save(long key, int tooltipVersion) {
+        boolean complete = TabCollector.isFullyCollected(); // Before, a catalog published meanwhile can only add namespaces.
+        var items = TabCollector.getCatalog();
+        savedMisses = TooltipCache.getMisses();
+        savedNamespaces = items.size();
+        CatalogExecutor.submit(() -> write(key, tooltipVersion, complete, items));
+    }
+
+    private static void write(long key, int tooltipVersion, boolean complete, @NotNull Map<String, CatalogSegment> items) {
+        if (TooltipCache.getVersion() != tooltipVersion) return; // Changed since, the tooltips don't match the key anymore.
+        var path = getPath();
+        var tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeLong(key);
+                output.writeBoolean(complete);
+                output.writeInt(items.size());
+                for (var entry : items.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    output.writeInt(entry.getValue().size());
+                    for (var stack : entry.getValue()) {
+                        NbtIo.write(stack.save(new CompoundTag()), output);
+                        // Only stacks with nbt are searched by tooltip.
+                        writeText(output, stack.hasTag() ? TooltipCache.peek(stack) : null);
+                    }
+                }
+            }
+            // Replace at once, a crash while writing never leave a broken file.
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            ApocalypseLib.LOGGER.error("Failed to save the catalog file {}", path, e);
+        }
+    }
+
+    private static void writeText(@NotNull DataOutput output, @Nullable String text) throws IOException {
+        if (text == null) {
+            output.writeInt(-1);
+            return;
+        }
+        output.writeInt(text.length());
+        output.writeChars(text); // Tooltips can be longer than what writeUTF() allow.
+    }
+
+    private static @Nullable String readText(@NotNull DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) return null;
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = input.readChar();
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Hash everything that change the collected catalog or its tooltips, only from cheap inputs:
+     * files are not read and the item tags are only hashed again when the server send them.
+     */
+    private static long computeKey(@NotNull Minecraft mc) {
+        if (modsHash == 0) {
+            long hash = hash(FNV_OFFSET, SharedConstants.getCurrentVersion().getName());
+            List<String> mods = new ArrayList<>();
+            for (var mod : ModList.get().getMods()) {
+                mods.add(mod.getModId() + "@" + mod.getVersion());
+            }
+            Collections.sort(mods);
+            for (var mod : mods) {
+                hash = hash(hash, mod);
+            }
+            modsHash = hash;
+        }
+        long hash = modsHash;
+
+        // Configs can add or remove items, their size and time are enough to know if they were changed.
+        var configPath = FMLPaths.CONFIGDIR.get();
+        List<Path> configs = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(configPath, 2)) {
+            files.filter(Files::isRegularFile).forEach(configs::add);
+        } catch (IOException | UncheckedIOException e) {
+            ApocalypseLib.LOGGER.debug("Failed to list the config directory {}", configPath, e);
+        }
+        configs.sort(Comparator.naturalOrder());
+        for (var config : configs) {
+            hash = hash(hash, configPath.relativize(config).toString());
+            try {
+                hash = hash(hash, Files.size(config));
+                hash = hash(hash, Files.getLastModifiedTime(config).toMillis());
+            } catch (IOException e) {
+                ApocalypseLib.LOGGER.debug("Failed to read the config file {}", config, e);
+            }
+        }
+
+        // Resource packs can change the translations, so the tooltips.
+        List<String> packs = new ArrayList<>(mc.getResourcePackRepository().getSelectedIds());
+        Collections.sort(packs);
+        for (var pack : packs) {
+            hash = hash(hash, pack);
+        }
+
+        hash = hash(hash, String.valueOf(mc.getLanguageManager().getSelected()));
+        hash = hash(hash, mc.options.advancedItemTooltips ? "advanced" : "normal");
+        if (mc.player != null) {
+            List<String> features = new ArrayList<>();
+            for (ResourceLocation feature : FeatureFlags.REGISTRY.toNames(mc.player.connection.enabledFeatures())) {
+                features.add(feature.toString());
+            }
+            Collections.sort(features);
+            for (var feature : features) {
+                hash = hash(hash, feature);
+            }
+            boolean operatorTab = mc.options.operatorItemsTab().get() && mc.player.canUseGameMasterBlocks();
+            hash = hash(hash, operatorTab ? "operator" : "player");
+
+            // Item tags are sent by the server, they change the tags search and the tabs built from tags.
+            if (hashedTagGeneration != tagGeneration) {
+                tagsHash = hashTags();
+                hashedTagGeneration = tagGeneration;
+            }
+            hash = hash(hash, tagsHash);
+        }
+        return hash;
+    }
+
+    /**
+     * Hash every item tag and its members without building any string, a sum is used so the order doesn't matter.
+     */
+    private static long hashTags() {
+        long[] sum = new long[1];
+        BuiltInRegistries.ITEM.getTags().forEach(pair -> {
+            long members = 0;
+            for (var holder : pair.getSecond()) {
+                members += HashCommon.mix((long) BuiltInRegistries.ITEM.getKey(holder.value()).hashCode());
+            }
+            sum[0] += HashCommon.mix(pair.getFirst().location().hashCode() * FNV_PRIME + members);
+        });
+        return sum[0];
+    }
+
+    private static long hash(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ ((value >>> (i * 8)) & 0xff)) * FNV_PRIME;
+        }
+        return (hash ^ 0xff) * FNV_PRIME;
+    }
+
+    private static long hash(long hash, @NotNull String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return (hash ^ 0xff) * FNV_PRIME; // Separator, so "ab" + "c" is not "a" + "bc".
+    }
+
+    /**
+     * @param items Saved namespaces.
+     * @param complete True if every namespace was saved.
+     */
+    private record Catalog(Map<String, CatalogSegment> items, boolean complete) { }
+}
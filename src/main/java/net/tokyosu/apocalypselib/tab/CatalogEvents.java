@@ -0,0 +1,43 @@
+package net.tokyosu.apocalypselib.tab;
+
+import net.minecraft.server.packs.resources.ResourceManagerReloadListener;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
+import net.minecraftforge.client.event.RegisterClientReloadListenersEvent;
+import net.minecraftforge.event.TagsUpdatedEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.tokyosu.apocalypselib.ApocalypseLib;
+import net.tokyosu.apocalypselib.search.TooltipCache;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Invalidate the collected catalog when its content can change:
+ * item tags received from a server, login to a server (other content or feature flags) and resource reload (translations).
+ */
+@Mod.EventBusSubscriber(modid = ApocalypseLib.MOD_ID, value = Dist.CLIENT)
+public class CatalogEvents {
+    @SubscribeEvent
+    public static void onTagsUpdated(@NotNull TagsUpdatedEvent event) {
+        if (event.getUpdateCause() == TagsUpdatedEvent.UpdateCause.CLIENT_PACKET_RECEIVED) {
+            CatalogCache.onTagsUpdated();
+            TabCollector.invalidate();
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLoggingIn(@NotNull ClientPlayerNetworkEvent.LoggingIn event) {
+        TabCollector.invalidate();
+    }
+
+    @Mod.EventBusSubscriber(modid = ApocalypseLib.MOD_ID, value = Dist.CLIENT, bus = Mod.EventBusSubscriber.Bus.MOD)
+    public static class ModEvents {
+        @SubscribeEvent
+        public static void onRegisterReloadListeners(@NotNull RegisterClientReloadListenersEvent event) {
+            event.registerReloadListener((ResourceManagerReloadListener) resourceManager -> {
+                TooltipCache.invalidate();
+                TabCollector.invalidate();
+            });
+        }
+    }
+}
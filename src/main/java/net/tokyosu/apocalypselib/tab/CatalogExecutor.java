@@ -0,0 +1,29 @@
+package net.tokyosu.apocalypselib.tab;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Single background thread used to collect the catalog (rebuild, prefetch) and write the catalog file.
+ * Separated from SearchExecutor, so a search never wait behind a whole catalog collection.
+ */
+@SuppressWarnings("unused")
+public final class CatalogExecutor {
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "ApocalypseLib Catalog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Queue a collection task, tasks are run one by one in the order they are submitted.
+     * @param task A valid task, it must only read the creative tab stacks, never create tooltips.
+     * @return A future that can be cancelled if the task is not needed anymore.
+     */
+    public static @NotNull Future<?> submit(@NotNull Runnable task) {
+        return EXECUTOR.submit(task);
+    }
+}
@@ -0,0 +1,260 @@
+package net.tokyosu.apocalypselib.tab;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.tokyosu.apocalypselib.utils.TagUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Compact, immutable list of the unique stacks of one namespace.
+ * Stacks are kept as parallel arrays (item, shared nbt, capabilities nbt, hash), an ItemStack is only created when get()
+ * is called, so only the shown cells (or the searched tab) have a real ItemStack.
+ * Equal tags are shared between entries, never modify getTag() ! Created stacks always get a copy, since an item can
+ * change its tag when it's set (Item.verifyTagAfterLoad(), damage).
+ */
+@SuppressWarnings("unused")
+public final class CatalogSegment extends AbstractList<ItemStack> implements RandomAccess {
+    private final String namespace;
+    private final Item[] items;
+    private final CompoundTag[] tags;
+    private final CompoundTag @Nullable [] capabilities; // Null when no stack of the namespace has capabilities, the usual case.
+    private final long[] hashes;
+
+    private CatalogSegment(@NotNull String namespace, @NotNull Item[] items, @NotNull CompoundTag[] tags, CompoundTag @Nullable [] capabilities, long @NotNull [] hashes) {
+        this.namespace = namespace;
+        this.items = items;
+        this.tags = tags;
+        this.capabilities = capabilities;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Create a new ItemStack of an entry, same as the collected stack copy() (tag and capabilities are copies).
+     */
+    @Override
+    public @NotNull ItemStack get(int index) {
+        var capabilities = this.capabilities != null ? this.capabilities[index] : null;
+        var stack = new ItemStack(this.items[index], 1, capabilities != null ? capabilities.copy() : null);
+        var tag = this.tags[index];
+        if (tag != null) {
+            stack.setTag(tag.copy());
+        }
+        return stack;
+    }
+
+    @Override
+    public int size() {
+        return this.items.length;
+    }
+
+    /**
+     * Compared by instance, comparing the content would create every ItemStack.
+     */
+    @Override
+    public boolean equals(Object other) {
+        return this == other;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+
+    public @NotNull String getNamespace() {
+        return this.namespace;
+    }
+
+    public @NotNull Item getItem(int index) {
+        return this.items[index];
+    }
+
+    /**
+     * Get the shared tag of an entry, don't modify it !
+     */
+    public @Nullable CompoundTag getTag(int index) {
+        return this.tags[index];
+    }
+
+    /**
+     * Get the capabilities nbt of an entry ("ForgeCaps"), don't modify it !
+     */
+    public @Nullable CompoundTag getCapabilities(int index) {
+        return this.capabilities != null ? this.capabilities[index] : null;
+    }
+
+    /**
+     * Get the TagUtils.hashStack() of an entry.
+     */
+    public long getHash(int index) {
+        return this.hashes[index];
+    }
+
+    /**
+     * Build a segment from stacks, duplicated stacks (same item and nbt) are skipped.
+     */
+    public static final class Builder {
+        private final String namespace;
+        private final TagInterner interner;
+        private Item[] items;
+        private CompoundTag[] tags;
+        private CompoundTag[] capabilities; // Created by the first stack with capabilities.
+        private long[] hashes;
+        private int size = 0;
+        private int[] slots; // Open addressing on the hashes, entry index + 1, 0 is empty.
+        private int mask;
+
+        /**
+         * @param namespace The namespace of every stack.
+         * @param expectedSize Number of stacks expected, the builder grow if needed.
+         * @param interner Share equal tags, use the same interner for every segment of a collection.
+         */
+        public Builder(@NotNull String namespace, int expectedSize, @NotNull TagInterner interner) {
+            int capacity = Math.max(expectedSize, 16);
+            this.namespace = namespace;
+            this.interner = interner;
+            this.items = new Item[capacity];
+            this.tags = new CompoundTag[capacity];
+            this.hashes = new long[capacity];
+            this.slots = new int[HashCommon.arraySize(capacity, 0.5f)];
+            this.mask = this.slots.length - 1;
+        }
+
+        /**
+         * Add a stack if no equal stack (same item and same nbt) was added before.
+         * @param stack A valid ItemStack, only its item, tag and capabilities are kept (copied or shared).
+         * @return True if added, false if an equal stack is already inside.
+         */
+        public boolean add(@NotNull ItemStack stack) {
+            var item = stack.getItem();
+            var tag = stack.getTag();
+            long tagHash = tag != null ? TagUtils.hashTag(tag) : 0;
+            long hash = TagUtils.hashStack(item, tagHash);
+
+            int slot = (int) hash & this.mask;
+            while (this.slots[slot] != 0) {
+                int index = this.slots[slot] - 1;
+                if (this.hashes[index] == hash && this.items[index] == item && Objects.equals(this.tags[index], tag)) {
+                    return false;
+                }
+                slot = (slot + 1) & this.mask;
+            }
+
+            if (this.size == this.items.length) {
+                int capacity = this.size * 2;
+                this.items = Arrays.copyOf(this.items, capacity);
+                this.tags = Arrays.copyOf(this.tags, capacity);
+                this.hashes = Arrays.copyOf(this.hashes, capacity);
+                if (this.capabilities != null) {
+                    this.capabilities = Arrays.copyOf(this.capabilities, capacity);
+                }
+            }
+            var capabilities = getCapabilities(stack);
+            if (capabilities != null) {
+                if (this.capabilities == null) {
+                    this.capabilities = new CompoundTag[this.items.length];
+                }
+                this.capabilities[this.size] = this.interner.intern(capabilities, TagUtils.hashTag(capabilities));
+            }
+            this.items[this.size] = item;
+            this.tags[this.size] = tag != null ? this.interner.intern(tag, tagHash) : null;
+            this.hashes[this.size] = hash;
+            this.slots[slot] = ++this.size;
+            if (this.size * 2 > this.slots.length) {
+                this.rehash();
+            }
+            return true;
+        }
+
+        /**
+         * Forge keep the capabilities of a stack outside its tag, they are only given by save() (serializeCaps() isn't public).
+         */
+        private static @Nullable CompoundTag getCapabilities(@NotNull ItemStack stack) {
+            var saved = stack.save(new CompoundTag());
+            return saved.contains("ForgeCaps", 10) ? saved.getCompound("ForgeCaps") : null;
+        }
+
+        private void rehash() {
+            this.slots = new int[this.slots.length * 2];
+            this.mask = this.slots.length - 1;
+            for (int index = 0; index < this.size; index++) {
+                int slot = (int) this.hashes[index] & this.mask;
+                while (this.slots[slot] != 0) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.slots[slot] = index + 1;
+            }
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public @NotNull CatalogSegment build() {
+            var capabilities = this.capabilities != null ? Arrays.copyOf(this.capabilities, this.size) : null;
+            return new CatalogSegment(this.namespace, Arrays.copyOf(this.items, this.size), Arrays.copyOf(this.tags, this.size), capabilities, Arrays.copyOf(this.hashes, this.size));
+        }
+    }
+
+    /**
+     * Keep a single copy of equal tags (example: the same potion tag used by potion, splash potion and tipped arrow).
+     * Thread safe, a namespace can be collected in background while another is collected on the render thread.
+     */
+    public static final class TagInterner {
+        private long[] hashes = new long[256];
+        private CompoundTag[] tags = new CompoundTag[256];
+        private int size = 0;
+
+        /**
+         * @param tag A tag, copied if it's not interned yet.
+         * @param tagHash TagUtils.hashTag() of this tag.
+         * @return The shared copy, don't modify it !
+         */
+        public synchronized @NotNull CompoundTag intern(@NotNull CompoundTag tag, long tagHash) {
+            int mask = this.tags.length - 1;
+            int slot = (int) tagHash & mask;
+            while (this.tags[slot] != null) {
+                if (this.hashes[slot] == tagHash && this.tags[slot].equals(tag)) {
+                    return this.tags[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            var copy = tag.copy();
+            this.hashes[slot] = tagHash;
+            this.tags[slot] = copy;
+            if (++this.size * 2 > this.tags.length) {
+                this.rehash();
+            }
+            return copy;
+        }
+
+        private void rehash() {
+            long[] oldHashes = this.hashes;
+            CompoundTag[] oldTags = this.tags;
+            this.hashes = new long[oldTags.length * 2];
+            this.tags = new CompoundTag[oldTags.length * 2];
+            int mask = this.tags.length - 1;
+            for (int i = 0; i < oldTags.length; i++) {
+                if (oldTags[i] == null) continue;
+                int slot = (int) oldHashes[i] & mask;
+                while (this.tags[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                this.hashes[slot] = oldHashes[i];
+                this.tags[slot] = oldTags[i];
+            }
+        }
+
+        public synchronized int size() {
+            return this.size;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package net.tokyosu.apocalypselib.tab;
+
+import net.minecraft.client.Minecraft;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.tokyosu.apocalypselib.ApocalypseLib;
+import net.tokyosu.apocalypselib.search.SearchIndex;
+import net.tokyosu.apocalypselib.search.TooltipCache;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Opt-in warm-up of the catalog, so the first CreativePanel open and the first search don't stall the client.
+ * Once in world, the catalog is collected and the search index of each namespace is built (creating the tooltip of every
+ * stack with nbt), a bit each client tick within a time budget. These indexes are shared (see SearchIndex.of()), so
+ * the grids reuse them instead of building them again. Tooltips can only be created on the render thread, so nothing here
+ * run on another thread. Started again each time the catalog or the tooltips are invalidated (see CatalogEvents).
+ * TooltipCache is grown to hold every tooltip created, so they all end in the catalog file.
+ */
+@SuppressWarnings("unused")
+@Mod.EventBusSubscriber(modid = ApocalypseLib.MOD_ID, value = Dist.CLIENT)
+public final class CatalogWarmup {
+    private static final long DEFAULT_BUDGET = 4_000_000L; // 4 ms of each 50 ms tick.
+    private static boolean enabled = false;
+    private static long budget = DEFAULT_BUDGET;
+    private static List<String> namespaces = List.of();
+    private static int namespaceIndex = 0;
+    private static @Nullable SearchIndex index = null; // Index of the current namespace.
+    private static int tagged = 0; // Stacks with nbt seen so far, each one has a tooltip.
+    private static int catalogVersion = -1;
+    private static int tooltipVersion = -1;
+    private static boolean running = false;
+    private static long startTime;
+
+    /**
+     * Enable the warm-up, call it from your mod constructor or client setup.
+     * @param value True to warm up the catalog in background once in world, false to collect it when a panel is opened (default).
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+        if (!value) {
+            running = false;
+            index = null;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Change the time spent each client tick.
+     * @param millis Milliseconds per tick (default 4), higher finish sooner but can drop frames.
+     */
+    public static void setBudget(double millis) {
+        budget = Math.max(100_000L, (long) (millis * 1_000_000L));
+    }
+
+    /**
+     * Is the warm-up still working ? Use it to show getProgress() in the panel.
+     */
+    public static boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return Between 0 and 1, 1 if nothing is left to do.
+     */
+    public static float getProgress() {
+        if (!running || namespaces.isEmpty()) return 1.0f;
+        return Math.min(1.0f, (float) namespaceIndex / namespaces.size());
+    }
+
+    @SubscribeEvent
+    public static void onClientTick(@NotNull TickEvent.ClientTickEvent event) {
+        if (!enabled || event.phase != TickEvent.Phase.END) return;
+        var mc = Minecraft.getInstance();
+        if (mc.player == null) {
+            running = false;
+            index = null;
+            catalogVersion = -1;
+            return;
+        }
+
+        // Cheap when the catalog is still valid, collect it again right after an invalidation.
+        TabCollector.ensureCollected();
+        if (TabCollector.isEmpty()) return; // Tabs not built yet.
+        if (TabCollector.getVersion() != catalogVersion || TooltipCache.getVersion() != tooltipVersion) {
+            start();
+        }
+        if (running) {
+            step();
+        }
+    }
+
+    private static void start() {
+        List<String> sorted = new ArrayList<>(TabCollector.getNamespaces());
+        Collections.sort(sorted);
+        namespaces = sorted;
+        namespaceIndex = 0;
+        index = null;
+        tagged = 0;
+        catalogVersion = TabCollector.getVersion();
+        tooltipVersion = TooltipCache.getVersion();
+        running = true;
+        startTime = System.nanoTime();
+        TabCollector.prefetch(sorted); // Collected on the catalog thread while the tooltips are created here.
+    }
+
+    /**
+     * Build the indexes until the tick budget is spent, the index keeps its position for the next tick.
+     * A namespace not collected by the prefetch yet is collected here at once.
+     */
+    private static void step() {
+        long deadline = System.nanoTime() + budget;
+        while (namespaceIndex < namespaces.size()) {
+            if (index == null) {
+                var segment = TabCollector.getItems(namespaces.get(namespaceIndex));
+                if (segment != null) {
+                    // Only stacks with nbt get a tooltip (see SearchEntry.getTooltip()), keep room for all of them.
+                    for (int i = 0; i < segment.size(); i++) {
+                        if (segment.getTag(i) != null) tagged++;
+                    }
+                    TooltipCache.ensureMaxSize(tagged);
+                    index = SearchIndex.of(segment);
+                }
+            }
+            if (index != null && !index.prepareStep(deadline)) return;
+            namespaceIndex++;
+            index = null;
+            if (System.nanoTime() >= deadline) return;
+        }
+
+        running = false;
+        ApocalypseLib.LOGGER.debug("Catalog warm-up of {} namespaces done in {} ms", namespaces.size(), (System.nanoTime() - startTime) / 1_000_000.0);
+        CatalogCache.saveTooltips();
+    }
+}
@@ -1,17 +1,24 @@
 package net.tokyosu.apocalypselib.tab;
 
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.fml.ModList;
 import net.tokyosu.apocalypselib.utils.ResourceUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
 
+/**
+ * Collect one tab per mod that have a creative tab, in the creative tabs order.
+ * The tabs are published as an immutable snapshot replaced at once when collected again,
+ * so a tab can be found by index (pages) or by namespace without copying anything.
+ */
 @SuppressWarnings("unused")
 public class ModTabCollector {
-    private static final Map<String, ModTabInfo> MOD_TABS = new LinkedHashMap<>();
+    private static volatile Snapshot snapshot = Snapshot.EMPTY;
 
     public static void collectAllModTabs() {
         // First, collect all mods with their display names
@@ -23,6 +30,9 @@ public class ModTabCollector {
         }
 
         // Then, match creative tabs to mods
+        List<ModTabInfo> tabs = new ArrayList<>();
+        Object2IntOpenHashMap<String> indexes = new Object2IntOpenHashMap<>();
+        indexes.defaultReturnValue(-1);
         for (var creativeTab : BuiltInRegistries.CREATIVE_MODE_TAB) {
             var icon = creativeTab.getIconItem();
             if (icon.isEmpty()) continue;
@@ -32,25 +42,73 @@ public class ModTabCollector {
 
             // Only add if we haven't added this mod yet and it exists
             var namespace = resourceLocation.getNamespace();
-            if (modDisplayNames.containsKey(namespace) && !MOD_TABS.containsKey(namespace)) {
-                MOD_TABS.putIfAbsent(namespace, new ModTabInfo(
+            if (modDisplayNames.containsKey(namespace) && !indexes.containsKey(namespace)) {
+                indexes.put(namespace, tabs.size());
+                tabs.add(new ModTabInfo(
                         namespace,
                         modDisplayNames.get(namespace),
                         icon.copy()
                 ));
             }
         }
+
+        snapshot = new Snapshot(tabs.toArray(new ModTabInfo[0]), indexes);
+    }
+
+    public static int getModCount() {
+        return snapshot.tabs.length;
     }
 
-    public static int getModCount() { return MOD_TABS.size(); }
+    /**
+     * Get a tab by its position, use it for pages (page * tabsPerPage + tabId).
+     * @param index Tab position.
+     * @return The tab, or null if out of range.
+     */
+    public static @Nullable ModTabInfo getTab(int index) {
+        var tabs = snapshot.tabs;
+        return index >= 0 && index < tabs.length ? tabs[index] : null;
+    }
+
+    /**
+     * Get the position of a mod tab.
+     * @param namespace A mod id.
+     * @return The tab position, or -1 if this mod doesn't have a tab.
+     */
+    public static int getTabIndex(@NotNull String namespace) {
+        return snapshot.indexes.getInt(namespace);
+    }
 
+    /**
+     * Get every tab in order, the map is built once per collection and can't be modified.
+     */
     public static Map<String, ModTabInfo> getModTabs() {
-        return MOD_TABS;
+        return snapshot.map;
     }
 
     public static ModTabInfo getTabInfo(String namespace) {
-        return MOD_TABS.get(namespace);
+        return getTab(getTabIndex(namespace));
     }
 
     public record ModTabInfo(String namespace, String displayName, ItemStack iconItem) { }
+
+    /**
+     * Immutable result of a collection, never modified once published.
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(new ModTabInfo[0], new Object2IntOpenHashMap<>());
+        private final ModTabInfo[] tabs;
+        private final Object2IntMap<String> indexes;
+        private final Map<String, ModTabInfo> map;
+
+        private Snapshot(@NotNull ModTabInfo[] tabs, @NotNull Object2IntOpenHashMap<String> indexes) {
+            indexes.defaultReturnValue(-1);
+            Map<String, ModTabInfo> map = new LinkedHashMap<>();
+            for (var tab : tabs) {
+                map.put(tab.namespace(), tab);
+            }
+            this.tabs = tabs;
+            this.indexes = indexes;
+            this.map = Collections.unmodifiableMap(map);
+        }
+    }
 }
@@ -1,23 +1,120 @@
 package net.tokyosu.apocalypselib.tab;
 
+import net.minecraft.client.Minecraft;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.item.CreativeModeTab;
+import net.minecraft.world.item.CreativeModeTabs;
 import net.minecraft.world.item.ItemStack;
-import net.tokyosu.apocalypselib.menu.component.ScrollableGrid;
+import net.tokyosu.apocalypselib.ApocalypseLib;
 import net.tokyosu.apocalypselib.utils.ResourceUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Collect the items of every creative tab, grouped by namespace into a CatalogSegment.
+ * Collection is done in two steps: routeAllTabs() only sort the tab stacks by namespace (no copy, no dedup),
+ * then the items of a namespace are collected the first time they are needed (getItems()).
+ * The catalog is published as an immutable snapshot behind a single volatile field, each change publish a new one,
+ * so readers always see a consistent catalog without locking, even while it's collected on another thread.
+ * Routing reads the creative tabs so it must be called on the render thread, reading and collecting can be done anywhere.
+ */
 @SuppressWarnings("unused")
 public class TabCollector {
-    public static final Map<String, LinkedHashSet<ItemStack>> TAB_ITEMS = new HashMap<>();
+    private static final Object LOCK = new Object(); // Only writers lock, to not lose a change published at the same time.
+    private static final Map<String, CatalogSegment> SEGMENTS_VIEW = new SegmentsView();
+    private static volatile Snapshot snapshot = Snapshot.EMPTY;
+    private static volatile boolean valid = false;
+    private static final AtomicInteger VERSION = new AtomicInteger(); // Incremented on the render thread and the catalog thread.
 
-    @SuppressWarnings("DataFlowIssue")
+    /**
+     * Collect the catalog (segments and mod tabs) only if it was invalidated since the last collection,
+     * so opening a creative panel again only cost the layout. See CatalogEvents for what invalidate it.
+     * Namespaces items are only collected when asked with getItems().
+     */
+    public static void ensureCollected() {
+        if (valid && !isEmpty()) return;
+        CatalogCache.loadOrCollect();
+        ModTabCollector.collectAllModTabs();
+        VERSION.incrementAndGet();
+        valid = !isEmpty(); // Tabs are empty until in world, try again next time.
+    }
+
+    /**
+     * Mark the catalog outdated, it will be collected again by the next ensureCollected().
+     * Can be called from any thread.
+     */
+    public static void invalidate() {
+        valid = false;
+        CatalogCache.invalidate(); // Else the loaded catalog would be kept, whatever the server sent.
+    }
+
+    /**
+     * Incremented each time the catalog is collected again, anything built from the segments can compare it.
+     */
+    public static int getVersion() {
+        return VERSION.get();
+    }
+
+    /**
+     * Collect every namespace right now, prefer routeAllTabs() and getItems() to only collect what is shown.
+     */
     public static void collectAllTabs() {
-        TAB_ITEMS.clear();
-        Set<String> seenItems = new HashSet<>();
+        long startTime = System.nanoTime();
+        routeAllTabs();
+        collectAll();
+        var current = snapshot;
+        ApocalypseLib.LOGGER.debug("Collected {} namespaces from creative tabs in {} ms, {} unique tags", current.segments.size(), (System.nanoTime() - startTime) / 1_000_000.0, current.interner.size());
+    }
 
+    /**
+     * Collect every namespace on the catalog thread (CatalogExecutor), the current catalog is kept until the new one is published at once.
+     * Only the routing is done here (render thread), so the UI isn't stopped by the collection.
+     * @return A future done once the new catalog is published, can be cancelled if not needed anymore.
+     */
+    public static @NotNull Future<?> rebuildAsync() {
+        var routed = route();
+        var interner = new CatalogSegment.TagInterner();
+        return CatalogExecutor.submit(() -> {
+            long startTime = System.nanoTime();
+            Map<String, CatalogSegment> segments = new HashMap<>(routed.size() * 4 / 3 + 1);
+            for (var entry : routed.entrySet()) {
+                segments.put(entry.getKey(), collect(entry.getKey(), entry.getValue(), interner));
+            }
+            synchronized (LOCK) {
+                snapshot = new Snapshot(segments, Map.of(), interner);
+                VERSION.incrementAndGet();
+            }
+            ApocalypseLib.LOGGER.debug("Collected {} namespaces in background in {} ms, {} unique tags", segments.size(), (System.nanoTime() - startTime) / 1_000_000.0, interner.size());
+        });
+    }
+
+    /**
+     * Sort every creative tab stack by namespace, the items are collected later by getItems().
+     * Only read the item of each stack, so it's cheap compared to collecting them.
+     * Publish a new catalog where nothing is collected yet.
+     */
+    public static void routeAllTabs() {
+        var routed = route();
+        synchronized (LOCK) {
+            snapshot = new Snapshot(Map.of(), routed, new CatalogSegment.TagInterner());
+        }
+    }
+
+    private static @NotNull Map<String, List<ItemStack>> route() {
+        // The tabs content depend on the server (feature flags, operator tab), rebuild them like the creative inventory does.
+        var mc = Minecraft.getInstance();
+        if (mc.player != null && mc.level != null) {
+            boolean operatorTab = mc.options.operatorItemsTab().get() && mc.player.canUseGameMasterBlocks();
+            CreativeModeTabs.tryRebuildTabContents(mc.player.connection.enabledFeatures(), operatorTab, mc.level.registryAccess());
+        }
+
+        Map<String, List<ItemStack>> routed = new HashMap<>();
         for (CreativeModeTab tab : BuiltInRegistries.CREATIVE_MODE_TAB) {
             try {
                 for (ItemStack stack : tab.getDisplayItems()) {
@@ -27,19 +124,208 @@ public class TabCollector {
                     ResourceLocation itemLocation = ResourceUtils.getResourcebyItem(stack.getItem());
                     if (itemLocation == null) continue;
 
-                    String namespace = itemLocation.getNamespace();
-
-                    // Create unique key (item + NBT)
-                    String uniqueKey = itemLocation + (stack.hasTag() ? stack.getTag().toString() : "");
-
-                    // Only add if not seen before
-                    if (seenItems.add(uniqueKey)) {
-                        TAB_ITEMS.computeIfAbsent(namespace, k -> new LinkedHashSet<>(ScrollableGrid.MAX_SLOTS / 2)).add(stack.copy()); // Allocate enough to avoid doing that with add().
-                    }
+                    routed.computeIfAbsent(itemLocation.getNamespace(), k -> new ArrayList<>()).add(stack);
                 }
             } catch (Exception e) {
                 // Skip problematic tabs
             }
         }
+        return routed;
+    }
+
+    /**
+     * Get the items of a namespace, collect them the first time.
+     * Can be called from any thread, a namespace collected by two threads at once is only published once.
+     * @param namespace A mod id.
+     * @return The items, or null if there is no item for this namespace.
+     */
+    public static @Nullable CatalogSegment getItems(@NotNull String namespace) {
+        var current = snapshot;
+        var items = current.segments.get(namespace);
+        if (items != null) return items;
+
+        var routed = current.routed.get(namespace);
+        if (routed == null) return null;
+        return publish(namespace, routed, collect(namespace, routed, current.interner));
+    }
+
+    /**
+     * Add a collected namespace to the catalog, unless it was collected meanwhile or the catalog changed.
+     * @return The segment now in the catalog, or the given one if the catalog changed.
+     */
+    private static @NotNull CatalogSegment publish(@NotNull String namespace, @NotNull List<ItemStack> routed, @NotNull CatalogSegment items) {
+        synchronized (LOCK) {
+            var current = snapshot;
+            var published = current.segments.get(namespace);
+            if (published != null) return published;
+            if (current.routed.get(namespace) == routed) {
+                snapshot = current.with(Map.of(namespace, items), false);
+            }
+            return items;
+        }
+    }
+
+    /**
+     * Collect every namespace not collected yet.
+     */
+    public static void collectAll() {
+        for (var namespace : snapshot.routed.keySet()) {
+            getItems(namespace);
+        }
+    }
+
+    /**
+     * Collect namespaces on the catalog thread, example: the tabs of the next page.
+     * The result is published from the catalog thread, unless the namespace was collected meanwhile or the catalog changed.
+     * Each namespace is submitted once per catalog, so calling it again for the same page is free.
+     * @param namespaces Mod ids, already collected or prefetched ones are skipped.
+     */
+    public static void prefetch(@NotNull Collection<String> namespaces) {
+        var current = snapshot;
+        List<String> pending = null;
+        for (var namespace : namespaces) {
+            // Skip namespaces already collected (not routed anymore) or already given to the catalog thread.
+            if (!current.routed.containsKey(namespace) || !current.prefetched.add(namespace)) continue;
+            if (pending == null) pending = new ArrayList<>(namespaces.size());
+            pending.add(namespace);
+        }
+        if (pending == null) return; // Nothing new, flipping back to a page already prefetched cost nothing.
+
+        // A single task for the whole page, tab stacks are only read so they can be collected outside the render thread.
+        var toCollect = pending;
+        CatalogExecutor.submit(() -> {
+            for (var namespace : toCollect) {
+                var routed = current.routed.get(namespace);
+                publish(namespace, routed, collect(namespace, routed, current.interner));
+            }
+        });
+    }
+
+    /**
+     * Set namespaces collected before (saved catalog).
+     * @param items Collected segments by namespace.
+     * @param complete True if it contains every namespace, the routed namespaces are then dropped.
+     */
+    public static void setCollected(@NotNull Map<String, CatalogSegment> items, boolean complete) {
+        synchronized (LOCK) {
+            snapshot = snapshot.with(items, complete);
+        }
+    }
+
+    /**
+     * Get a live view of the collected segments, can't be modified. Namespaces not collected yet are missing, use getItems() !
+     * Always the same instance, so it can be given to ScrollableGrid.setItemList().
+     * Each call read the last published catalog, use getCatalog() to read several namespaces of the same catalog.
+     */
+    public static @NotNull Map<String, CatalogSegment> getSegments() {
+        return SEGMENTS_VIEW;
+    }
+
+    /**
+     * Get the collected segments of the last published catalog, immutable so it never change while reading it.
+     */
+    public static @NotNull Map<String, CatalogSegment> getCatalog() {
+        return snapshot.segments;
+    }
+
+    /**
+     * Every namespace with items, collected or not.
+     */
+    public static @NotNull Set<String> getNamespaces() {
+        var current = snapshot;
+        Set<String> namespaces = new HashSet<>(current.segments.keySet());
+        namespaces.addAll(current.routed.keySet());
+        return namespaces;
+    }
+
+    /**
+     * Does every namespace is collected ? (nothing left for getItems())
+     */
+    public static boolean isFullyCollected() {
+        return snapshot.routed.isEmpty();
+    }
+
+    public static boolean isEmpty() {
+        var current = snapshot;
+        return current.segments.isEmpty() && current.routed.isEmpty();
+    }
+
+    /**
+     * The interner used by the current collection, so every segment share the same tags.
+     */
+    public static @NotNull CatalogSegment.TagInterner getInterner() {
+        return snapshot.interner;
+    }
+
+    /**
+     * Dedup the stacks of one namespace, an item always belong to the same namespace
+     * so deduplicating each namespace alone give the same result as deduplicating everything.
+     */
+    private static @NotNull CatalogSegment collect(@NotNull String namespace, @NotNull List<ItemStack> routed, @NotNull CatalogSegment.TagInterner interner) {
+        var builder = new CatalogSegment.Builder(namespace, routed.size(), interner);
+        for (var stack : routed) {
+            builder.add(stack);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Immutable catalog, never modified once published, changes are published as a new snapshot.
+     */
+    private static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), new CatalogSegment.TagInterner());
+        private final Map<String, CatalogSegment> segments;
+        private final Map<String, List<ItemStack>> routed; // Namespaces not collected yet, the lists are never modified.
+        private final CatalogSegment.TagInterner interner;
+        private final Set<String> prefetched; // Namespaces given to prefetch(), shared by the snapshots of the same routing.
+
+        private Snapshot(@NotNull Map<String, CatalogSegment> segments, @NotNull Map<String, List<ItemStack>> routed, @NotNull CatalogSegment.TagInterner interner) {
+            this(segments, routed, interner, ConcurrentHashMap.newKeySet());
+        }
+
+        private Snapshot(@NotNull Map<String, CatalogSegment> segments, @NotNull Map<String, List<ItemStack>> routed, @NotNull CatalogSegment.TagInterner interner, @NotNull Set<String> prefetched) {
+            this.segments = Map.copyOf(segments);
+            this.routed = Map.copyOf(routed);
+            this.interner = interner;
+            this.prefetched = prefetched;
+        }
+
+        /**
+         * Copy this snapshot with more collected namespaces.
+         * @param complete True if the given namespaces are every namespace, the other ones are then dropped.
+         */
+        private @NotNull Snapshot with(@NotNull Map<String, CatalogSegment> items, boolean complete) {
+            if (complete) return new Snapshot(items, Map.of(), this.interner);
+            Map<String, CatalogSegment> segments = new HashMap<>(this.segments);
+            segments.putAll(items);
+            Map<String, List<ItemStack>> routed = new HashMap<>(this.routed);
+            routed.keySet().removeAll(items.keySet());
+            return new Snapshot(segments, routed, this.interner, this.prefetched); // Same routed lists, so the same prefetches.
+        }
+    }
+
+    /**
+     * Read only map always reading the last published segments.
+     */
+    private static final class SegmentsView extends AbstractMap<String, CatalogSegment> {
+        @Override
+        public @NotNull Set<Entry<String, CatalogSegment>> entrySet() {
+            return snapshot.segments.entrySet();
+        }
+
+        @Override
+        public @Nullable CatalogSegment get(Object key) {
+            return snapshot.segments.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return snapshot.segments.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return snapshot.segments.size();
+        }
     }
 }
@@ -0,0 +1,162 @@
+package net.tokyosu.apocalypselib.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Find which rectangle is under the mouse without testing every one of them.
+ * The area covered by the rectangles is split in square cells, each cell know the few rectangles touching it,
+ * so a lookup only test the rectangles of one cell whatever how many were added.
+ * Rebuild it when the layout change (clear(), add() then build()), not each frame, the arrays are kept between builds
+ * so a rebuild of the same size allocate nothing.
+ * @param <T> The widget (or anything else) returned for a rectangle.
+ */
+@SuppressWarnings("unused")
+public final class HitTestGrid<T> {
+    private final int cellSize;
+    private Object[] values = new Object[8];
+    private int[] rects = new int[8 * 4]; // x, y, width, height of each value.
+    private int count = 0;
+    private int[] cellStart = new int[1]; // Entries of cell i are cellEntries[cellStart[i]..cellStart[i + 1]).
+    private int[] cellEntries = new int[8];
+    private int[] cellNext = new int[1]; // Fill position of each cell while building.
+    private int originX, originY;
+    private int columns, rows;
+    private boolean built = false;
+
+    /**
+     * @param cellSize Size of a cell in pixels, about the size of the widgets (tabs and buttons are 15-30 pixels).
+     */
+    public HitTestGrid(int cellSize) {
+        if (cellSize <= 0) throw new IllegalArgumentException("HitTestGrid cell size must be positive, got " + cellSize);
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Remove every rectangle, add the new ones then call build().
+     */
+    public void clear() {
+        Arrays.fill(this.values, 0, this.count, null);
+        this.count = 0;
+        this.built = false;
+    }
+
+    /**
+     * Add a rectangle, when rectangles overlap the first added is returned by get().
+     * Empty rectangles are ignored.
+     */
+    public void add(int x, int y, int width, int height, @NotNull T value) {
+        if (width <= 0 || height <= 0) return;
+        if (this.count == this.values.length) {
+            this.values = Arrays.copyOf(this.values, this.count * 2);
+            this.rects = Arrays.copyOf(this.rects, this.count * 2 * 4);
+        }
+        int offset = this.count * 4;
+        this.rects[offset] = x;
+        this.rects[offset + 1] = y;
+        this.rects[offset + 2] = width;
+        this.rects[offset + 3] = height;
+        this.values[this.count++] = value;
+        this.built = false;
+    }
+
+    /**
+     * Sort the rectangles into the cells, call it once every rectangle is added.
+     */
+    public void build() {
+        this.built = true;
+        if (this.count == 0) {
+            this.columns = 0;
+            this.rows = 0;
+            return;
+        }
+
+        // Bounds of every rectangle.
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < this.count; i++) {
+            int offset = i * 4;
+            minX = Math.min(minX, this.rects[offset]);
+            minY = Math.min(minY, this.rects[offset + 1]);
+            maxX = Math.max(maxX, this.rects[offset] + this.rects[offset + 2]);
+            maxY = Math.max(maxY, this.rects[offset + 1] + this.rects[offset + 3]);
+        }
+        this.originX = minX;
+        this.originY = minY;
+        this.columns = (maxX - minX + this.cellSize - 1) / this.cellSize;
+        this.rows = (maxY - minY + this.cellSize - 1) / this.cellSize;
+
+        // Count the entries of each cell, then turn the counts into start positions.
+        int cells = this.columns * this.rows;
+        if (this.cellStart.length < cells + 1) {
+            this.cellStart = new int[cells + 1];
+            this.cellNext = new int[cells + 1];
+        } else {
+            Arrays.fill(this.cellStart, 0, cells + 1, 0);
+        }
+        for (int i = 0; i < this.count; i++) {
+            int offset = i * 4;
+            int firstColumn = this.column(this.rects[offset]), lastColumn = this.column(this.rects[offset] + this.rects[offset + 2] - 1);
+            int firstRow = this.row(this.rects[offset + 1]), lastRow = this.row(this.rects[offset + 1] + this.rects[offset + 3] - 1);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    this.cellStart[row * this.columns + column + 1]++;
+                }
+            }
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            this.cellStart[cell + 1] += this.cellStart[cell];
+        }
+        if (this.cellEntries.length < this.cellStart[cells]) {
+            this.cellEntries = new int[this.cellStart[cells]];
+        }
+
+        // Fill the cells, in the order the rectangles were added.
+        System.arraycopy(this.cellStart, 0, this.cellNext, 0, cells);
+        for (int i = 0; i < this.count; i++) {
+            int offset = i * 4;
+            int firstColumn = this.column(this.rects[offset]), lastColumn = this.column(this.rects[offset] + this.rects[offset + 2] - 1);
+            int firstRow = this.row(this.rects[offset + 1]), lastRow = this.row(this.rects[offset + 1] + this.rects[offset + 3] - 1);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    this.cellEntries[this.cellNext[row * this.columns + column]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the value under a position.
+     * @return The first added value whose rectangle contains the position, or null if none (or not built).
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable T get(double x, double y) {
+        if (!this.built || this.count == 0 || x < this.originX || y < this.originY) return null;
+        int column = this.column((int) Math.floor(x));
+        int row = this.row((int) Math.floor(y));
+        if (column >= this.columns || row >= this.rows) return null;
+
+        int cell = row * this.columns + column;
+        for (int entry = this.cellStart[cell]; entry < this.cellStart[cell + 1]; entry++) {
+            int i = this.cellEntries[entry];
+            int offset = i * 4;
+            if (HudUtils.isMouseHoverRect(this.rects[offset], this.rects[offset + 1], this.rects[offset + 2], this.rects[offset + 3], x, y)) {
+                return (T) this.values[i];
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return this.count;
+    }
+
+    private int column(int x) {
+        return (x - this.originX) / this.cellSize;
+    }
+
+    private int row(int y) {
+        return (y - this.originY) / this.cellSize;
+    }
+}
@@ -29,4 +29,18 @@ public class HudUtils {
     public static boolean isMouseHoverRect(int x, int y, int mouseX, int mouseY, int pixelSize) {
         return mouseX >= x && mouseX <= x + pixelSize && mouseY >= y && mouseY <= y + pixelSize;
     }
+
+    /**
+     * Check if a mouse is inside a rectangle, like AbstractWidget.isMouseOver() the right and bottom edges are outside.
+     * @param x Starting position in X Axis.
+     * @param y Starting position in Y Axis.
+     * @param width Width of the rectangle.
+     * @param height Height of the rectangle.
+     * @param mouseX Mouse position in X Axis.
+     * @param mouseY Mouse position in Y Axis.
+     * @return True if it's over else false.
+     */
+    public static boolean isMouseHoverRect(int x, int y, int width, int height, double mouseX, double mouseY) {
+        return mouseX >= x && mouseX < x + width && mouseY >= y && mouseY < y + height;
+    }
 }
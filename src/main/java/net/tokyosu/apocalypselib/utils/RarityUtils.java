@@ -37,6 +37,16 @@ public class RarityUtils {
         return STYLE_MAP.computeIfAbsent(rarity, e -> e.getStyleModifier().apply(Style.EMPTY));
     }
 
+    /**
+     * Get the rank of the stack rarity, used to sort by rarity.
+     * @param stack A valid ItemStack.
+     * @return 0 for common (or empty), higher for rarer items.
+     */
+    public static int getRank(@NotNull ItemStack stack) {
+        if (stack.isEmpty()) return 0;
+        return stack.getRarity().ordinal();
+    }
+
     /**
      * Check if the current ItemStack is of rarity Common,
      * Don't check the current rarity using Rarity.COMMON, instead check the color of this rarity instead.
@@ -1,19 +1,11 @@
 package net.tokyosu.apocalypselib.utils;
 
 import net.minecraft.nbt.ListTag;
-import net.minecraft.network.chat.Component;
 import net.minecraft.world.item.ItemStack;
-import net.minecraft.world.item.TooltipFlag;
+import net.tokyosu.apocalypselib.search.TooltipCache;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
-import java.util.WeakHashMap;
-
 public class SearchUtils {
-    private static final Map<ItemStack, List<Component>> TOOLTIP_CACHE = new WeakHashMap<>();
-
     /**
      * Extensive research to include almost anything from tooltip to nbt and display name etc...
      * @param stack A valid ItemStack.
@@ -37,19 +29,8 @@ public class SearchUtils {
         if (stack.hasTag() && stack.getTag() != null) {
             var tag = stack.getTag();
 
-            // Get minecraft instance safely
-            // Use cached tooltip to avoid lag each time its called.
-            var tooltip = TOOLTIP_CACHE.computeIfAbsent(stack, s -> {
-                var mc = net.minecraft.client.Minecraft.getInstance();
-                if (mc.player != null) {
-                    return s.getTooltipLines(mc.player, TooltipFlag.Default.NORMAL);
-                }
-                return Collections.emptyList();
-            });
-            for (var line : tooltip) {
-                if (line.getString().toLowerCase().contains(search)) {
-                    return true;
-                }
+            if (TooltipCache.get(stack).contains(search)) {
+                return true;
             }
 
             // 4. Search directly in NBT for stored enchantments (enchanted books)
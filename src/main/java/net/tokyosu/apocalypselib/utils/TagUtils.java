@@ -1,14 +1,17 @@
 package net.tokyosu.apocalypselib.utils;
 
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
-import net.minecraft.nbt.CompoundTag;
-import net.minecraft.nbt.NbtUtils;
-import net.minecraft.nbt.TagParser;
+import it.unimi.dsi.fastutil.HashCommon;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.*;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.tokyosu.apocalypselib.ApocalypseLib;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
+
 /**
  * Contains some function for simplifying tag/nbt creating, check etc...
  */
@@ -43,4 +46,72 @@ public class TagUtils {
         if (!stack.hasTag()) return false;
         return NbtUtils.compareNbt(nbtRequired, stack.getTag(), true);
     }
+
+    /**
+     * Get a 64-bit hash of an ItemStack item and nbt content, without converting the nbt to a string.
+     * Two stacks with the same item and equal tags always have the same hash, different stacks can still collide !
+     * @param stack A valid ItemStack.
+     * @return The hash of the item and its tag.
+     */
+    public static long hashStack(@NotNull ItemStack stack) {
+        var tag = stack.getTag();
+        return hashStack(stack.getItem(), tag != null ? hashTag(tag) : 0);
+    }
+
+    /**
+     * Same as hashStack(ItemStack) when the tag hash is already known.
+     * @param item A valid item.
+     * @param tagHash The hashTag() of the stack tag, 0 if there is no tag.
+     */
+    public static long hashStack(@NotNull Item item, long tagHash) {
+        long hash = HashCommon.mix((long) BuiltInRegistries.ITEM.getId(item) + 1);
+        return tagHash != 0 ? HashCommon.mix(hash * 31 + tagHash) : hash;
+    }
+
+    /**
+     * Get a 64-bit hash of a tag content, compound keys order doesn't matter (same as CompoundTag.equals()).
+     * @param tag A valid tag.
+     * @return The hash of the tag content.
+     */
+    public static long hashTag(@NotNull Tag tag) {
+        long hash = tag.getId();
+        if (tag instanceof CompoundTag compound) {
+            // Sum of each entry so the order doesn't change the result.
+            long sum = 0;
+            for (var key : compound.getAllKeys()) {
+                var value = compound.get(key);
+                sum += HashCommon.mix(key.hashCode() * 0x9E3779B97F4A7C15L + (value != null ? hashTag(value) : 0));
+            }
+            return HashCommon.mix(hash * 31 + sum);
+        }
+        if (tag instanceof ByteArrayTag array) {
+            return HashCommon.mix(hash * 31 + Arrays.hashCode(array.getAsByteArray()));
+        }
+        if (tag instanceof IntArrayTag array) {
+            return HashCommon.mix(hash * 31 + Arrays.hashCode(array.getAsIntArray()));
+        }
+        if (tag instanceof LongArrayTag array) {
+            return HashCommon.mix(hash * 31 + Arrays.hashCode(array.getAsLongArray()));
+        }
+        if (tag instanceof CollectionTag<?> collection) {
+            // Lists, ordered.
+            for (var element : collection) {
+                hash = hash * 31 + hashTag(element);
+            }
+            return HashCommon.mix(hash * 31 + collection.size());
+        }
+        // Tags compare floats with ==, so -0.0 and 0.0 are equal and must hash the same, their bits (and Float.hashCode()) differ.
+        if (tag instanceof FloatTag floatTag) {
+            float value = floatTag.getAsFloat();
+            return HashCommon.mix(hash * 31 + Float.floatToIntBits(value == 0 ? 0f : value));
+        }
+        if (tag instanceof DoubleTag doubleTag) {
+            double value = doubleTag.getAsDouble();
+            return HashCommon.mix(hash * 31 + Double.doubleToLongBits(value == 0 ? 0d : value));
+        }
+        if (tag instanceof NumericTag numeric) {
+            return HashCommon.mix(hash * 31 + numeric.getAsLong());
+        }
+        return HashCommon.mix(hash * 31 + tag.getAsString().hashCode());
+    }
 }
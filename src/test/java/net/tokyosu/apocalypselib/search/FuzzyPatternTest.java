@@ -0,0 +1,67 @@
+package net.tokyosu.apocalypselib.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FuzzyPatternTest {
+    /**
+     * Smallest edit distance between the pattern and any part of the text (dynamic programming), -1 above maxEdits.
+     */
+    private static int expectedDistance(char[] pattern, char[] text, int maxEdits) {
+        int[] previous = new int[pattern.length + 1];
+        int[] current = new int[pattern.length + 1];
+        for (int i = 0; i <= pattern.length; i++) previous[i] = i;
+        int best = previous[pattern.length];
+        for (char c : text) {
+            current[0] = 0; // The match can start anywhere in the text.
+            for (int i = 1; i <= pattern.length; i++) {
+                int substitution = previous[i - 1] + (pattern[i - 1] == c ? 0 : 1);
+                current[i] = Math.min(substitution, Math.min(previous[i] + 1, current[i - 1] + 1));
+            }
+            best = Math.min(best, current[pattern.length]);
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return best <= maxEdits ? best : -1;
+    }
+
+    @Test
+    void findsTypos() {
+        var pattern = FuzzyPattern.create(FoldedPattern.fold("diamond"));
+        assertEquals(0, pattern.distanceIn(FoldedPattern.fold("diamond sword")));
+        assertEquals(1, pattern.distanceIn(FoldedPattern.fold("diamnd sword")));
+        assertEquals(2, pattern.distanceIn(FoldedPattern.fold("diamnod sword")));
+        assertEquals(-1, pattern.distanceIn(FoldedPattern.fold("iron sword")));
+        assertEquals(-1, pattern.distanceIn(new char[0]));
+    }
+
+    @Test
+    void shortPatternsAreNotFuzzy() {
+        assertNull(FuzzyPattern.create(FoldedPattern.fold("ore")));
+        assertNull(FuzzyPattern.create(new char[FuzzyPattern.MAX_LENGTH + 1]));
+        assertEquals(1, FuzzyPattern.create(FoldedPattern.fold("gold")).getMaxEdits());
+        assertEquals(FuzzyPattern.MAX_EDITS, FuzzyPattern.create(FoldedPattern.fold("copper")).getMaxEdits());
+    }
+
+    @Test
+    void matchesEditDistance() {
+        // Small alphabet with a char above 255, so matches and near matches are frequent.
+        char[] alphabet = {'a', 'b', 'c', 'd', 'é', 'д'};
+        var random = new Random(3);
+        for (int run = 0; run < 20000; run++) {
+            char[] pattern = new char[4 + random.nextInt(6)];
+            for (int i = 0; i < pattern.length; i++) pattern[i] = alphabet[random.nextInt(alphabet.length)];
+            char[] text = new char[random.nextInt(16)];
+            for (int i = 0; i < text.length; i++) text[i] = alphabet[random.nextInt(alphabet.length)];
+
+            var fuzzy = FuzzyPattern.create(pattern);
+            assertEquals(expectedDistance(pattern, text, fuzzy.getMaxEdits()), fuzzy.distanceIn(text),
+                    () -> new String(pattern) + " in " + new String(text));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package net.tokyosu.apocalypselib.search;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The trigram postings must only narrow the candidates, every result is checked against a linear scan of the entries.
+ */
+class SearchIndexTest {
+    private static final String[] WORDS = {
+            "iron", "gold", "diamond", "ingot", "nugget", "block", "sword", "pickaxe", "ore", "raw",
+            "oak", "log", "planks", "copper", "Éclair", "straße", "ДУБ", "glass", "pane", "dye"
+    };
+    private static final String[] NAMESPACES = {"minecraft", "create", "mekanism", "ae2"};
+    private static final String[] MOD_NAMES = {"Minecraft", "Create", "Mekanism", "Applied Energistics 2"};
+    private static final String[] TAGS = {"minecraft:logs", "forge:ingots/iron", "forge:ores", "minecraft:planks"};
+    private static final String[] ENCHANTMENTS = {"minecraft:sharpness", "minecraft:fire_aspect", "minecraft:unbreaking"};
+    private static SearchEntry[] entries;
+    private static SearchIndex index;
+
+    @BeforeAll
+    static void createEntries() {
+        var random = new Random(42);
+        int[] ordinals = Arrays.stream(ENCHANTMENTS).mapToInt(EnchantmentTable::intern).toArray();
+        entries = new SearchEntry[2000];
+        for (int i = 0; i < entries.length; i++) {
+            int mod = random.nextInt(NAMESPACES.length);
+            var name = words(random, 1 + random.nextInt(3));
+            var id = NAMESPACES[mod] + ":" + name.toLowerCase().replace(' ', '_');
+            boolean tagged = random.nextInt(4) == 0;
+            int[] enchantments = tagged && random.nextBoolean() ? new int[] {ordinals[random.nextInt(ordinals.length)]} : new int[0];
+            var tooltip = tagged ? words(random, 2 + random.nextInt(4)) : "";
+            var tags = random.nextBoolean() ? TAGS[random.nextInt(TAGS.length)] : "";
+            entries[i] = new SearchEntry(NAMESPACES[mod], MOD_NAMES[mod], name, id, enchantments, tooltip, tags);
+        }
+        index = SearchIndex.of(entries);
+    }
+
+    private static String words(Random random, int count) {
+        var builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(' ');
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static List<String> filters() {
+        List<String> filters = new ArrayList<>(List.of(
+                "", "iron", "IRON", "ingot iron", "iron | gold", "-iron", "iron -ingot", "@create", "-@minecraft",
+                "#logs", "$nugget", "$ore -$raw", "sharp", "fire_asp", "éclair", "STRASSE", "straß", "дуб",
+                "ro", "on_", "n i", "r:g", "zzz", "@", "-", "iron |", "planks | @ae2 glass"
+        ));
+        // Parts of words, so trigrams overlap word boundaries and missing trigrams are covered too.
+        var random = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            var text = words(random, 2).toLowerCase();
+            int start = random.nextInt(text.length());
+            filters.add(text.substring(start, Math.min(text.length(), start + 3 + random.nextInt(6))));
+        }
+        return filters;
+    }
+
+    private static int[] linearScan(SearchQuery query) {
+        return IntStream.range(0, entries.length).filter(id -> query.matches(entries[id])).toArray();
+    }
+
+    @Test
+    void searchMatchesLinearScan() {
+        for (var filter : filters()) {
+            var query = SearchQuery.compile(filter);
+            assertArrayEquals(linearScan(query), index.search(query), filter);
+        }
+    }
+
+    @Test
+    void limitKeepsTheFirstHits() {
+        for (var filter : filters()) {
+            var query = SearchQuery.compile(filter);
+            var expected = linearScan(query);
+            for (int limit : new int[] {0, 1, 5, 100}) {
+                assertArrayEquals(Arrays.copyOf(expected, Math.min(limit, expected.length)), index.search(query, limit), filter + " limit " + limit);
+            }
+        }
+    }
+
+    @Test
+    void refinedSearchMatchesFullSearch() {
+        String[][] steps = {{"ir", "iro", "iron", "iron i", "iron in"}, {"@cre", "@create", "@create gold"}, {"-iron", "-iron -g", "-iron -g @create"}};
+        for (var filters : steps) {
+            var previous = SearchQuery.compile(filters[0]);
+            var hits = index.search(previous);
+            for (int i = 1; i < filters.length; i++) {
+                var query = SearchQuery.compile(filters[i]);
+                assertTrue(query.refines(previous), filters[i]);
+                hits = index.search(query, hits);
+                assertArrayEquals(linearScan(query), hits, filters[i]);
+                previous = query;
+            }
+        }
+    }
+
+    @Test
+    void rankedSearchFindsTheSameEntries() {
+        for (var filter : filters()) {
+            var query = SearchQuery.compile(filter);
+            var ranked = index.searchRanked(query, false, 10);
+            Arrays.sort(ranked);
+            assertArrayEquals(linearScan(query), ranked, filter);
+        }
+    }
+
+    @Test
+    void sortFollowsTheNameOrder() {
+        var hits = index.search(SearchQuery.compile("iron"));
+        var sorted = index.sort(hits, SortOrder.NAME);
+        assertEquals(hits.length, sorted.length);
+        for (int i = 1; i < sorted.length; i++) {
+            int result = Arrays.compare(entries[sorted[i - 1]].getName(), entries[sorted[i]].getName());
+            assertTrue(result < 0 || (result == 0 && sorted[i - 1] < sorted[i]));
+        }
+    }
+
+    @Test
+    void postingsBuiltInStepsGiveTheSameResult() {
+        var stepped = SearchIndex.of(entries);
+        int steps = 0;
+        while (!stepped.prepareStep(Long.MIN_VALUE)) steps++; // Deadline always passed, so it stops every 16 entries.
+        assertTrue(steps > 0);
+        for (var filter : filters()) {
+            var query = SearchQuery.compile(filter);
+            assertArrayEquals(index.search(query), stepped.search(query), filter);
+        }
+    }
+
+    @Test
+    void prepareExtractsWhatTheQueryNeeds() {
+        var fresh = SearchIndex.of(entries);
+        var tags = SearchQuery.compile("#logs");
+        assertTrue(fresh.isPrepared(SearchQuery.compile("@create"))); // Namespace and mod name are extracted at build.
+        assertFalse(fresh.isPrepared(tags));
+        int steps = 0;
+        while (!fresh.prepareStep(tags, Long.MIN_VALUE)) steps++;
+        assertTrue(steps > 0);
+        assertTrue(fresh.isPrepared(tags));
+        assertFalse(fresh.isPrepared(SearchQuery.compile("iron"))); // Tooltips and postings not built yet.
+        fresh.prepare(SearchQuery.compile("iron"));
+        assertTrue(fresh.isPrepared(SearchQuery.compile("iron #logs")));
+    }
+}
@@ -0,0 +1,76 @@
+package net.tokyosu.apocalypselib.search;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SearchQueryTest {
+    private static final SearchEntry[] ENTRIES = {
+            new SearchEntry("minecraft", "Minecraft", "Iron Ingot", "minecraft:iron_ingot", new int[0], "", "forge:ingots/iron"),
+            new SearchEntry("create", "Create", "Brass Ingot", "create:brass_ingot", new int[0], "", "forge:ingots/brass"),
+            new SearchEntry("minecraft", "Minecraft", "Enchanted Book", "minecraft:enchanted_book",
+                    new int[] {EnchantmentTable.intern("minecraft:sharpness")}, "enchanted book\nsharpness v", ""),
+            new SearchEntry("minecraft", "Minecraft", "Diamond Sword", "minecraft:diamond_sword", new int[0], "", "")
+    };
+    private static final int RUNS = 100_000;
+
+    @Test
+    void matchesEveryField() {
+        assertTrue(SearchQuery.compile("").matches(ENTRIES[0]));
+        assertTrue(SearchQuery.compile("iron").matches(ENTRIES[0]));
+        assertTrue(SearchQuery.compile("@create ingot").matches(ENTRIES[1]));
+        assertTrue(SearchQuery.compile("#ingots/brass").matches(ENTRIES[1]));
+        assertTrue(SearchQuery.compile("sharp").matches(ENTRIES[2])); // Enchantment.
+        assertTrue(SearchQuery.compile("$sharpness").matches(ENTRIES[2]));
+        assertTrue(SearchQuery.compile("brass | sword").matches(ENTRIES[3]));
+        assertFalse(SearchQuery.compile("ingot -@minecraft").matches(ENTRIES[0]));
+        assertFalse(SearchQuery.compile("$ingot").matches(ENTRIES[0])); // No tooltip.
+    }
+
+    @Test
+    void scoresTheBestField() {
+        assertEquals(900, SearchQuery.compile("diamond").score(ENTRIES[3], false)); // Name prefix.
+        assertEquals(800, SearchQuery.compile("sword").score(ENTRIES[3], false)); // Inside the name.
+        var query = SearchQuery.compile("diamond sword");
+        assertEquals(1700, query.score(ENTRIES[3], false)); // Each term adds its score.
+        assertEquals(-1, query.score(ENTRIES[0], false));
+        assertTrue(SearchQuery.compile("diamnod").score(ENTRIES[3], true) > 0);
+        assertEquals(-1, SearchQuery.compile("diamnod").score(ENTRIES[3], false));
+    }
+
+    @Test
+    void matchingDoesNotAllocate() {
+        var bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof ThreadMXBean threads && threads.isThreadAllocatedMemorySupported());
+        var threads = (ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        // Several groups and terms of each field, so every loop of matches() and score() runs.
+        var query = SearchQuery.compile("ingot -@create #ingots | $sharp book | diamnod sword");
+        int found = this.run(query); // Warm up, loads the classes and creates the switch maps.
+        long thread = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(thread);
+        int again = this.run(query);
+        long allocated = threads.getThreadAllocatedBytes(thread) - start;
+
+        assertEquals(found, again);
+        // An iterator per group or term would be several megabytes, allow a little for the measure itself.
+        assertTrue(allocated < 4096, () -> allocated + " bytes allocated by " + RUNS + " runs");
+    }
+
+    private int run(SearchQuery query) {
+        int found = 0;
+        for (int i = 0; i < RUNS; i++) {
+            var entry = ENTRIES[i & 3];
+            if (query.matches(entry)) found++;
+            if (query.score(entry, true) >= 0) found++;
+        }
+        return found;
+    }
+}
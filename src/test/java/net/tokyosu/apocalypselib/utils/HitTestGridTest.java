@@ -0,0 +1,65 @@
+package net.tokyosu.apocalypselib.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HitTestGridTest {
+    @Test
+    void emptyOrNotBuilt() {
+        var grid = new HitTestGrid<String>(16);
+        grid.build();
+        assertNull(grid.get(0, 0));
+        grid.add(0, 0, 10, 10, "a");
+        assertNull(grid.get(5, 5)); // Not built again.
+        grid.build();
+        assertEquals("a", grid.get(5, 5));
+        grid.clear();
+        grid.build();
+        assertNull(grid.get(5, 5));
+        assertThrows(IllegalArgumentException.class, () -> new HitTestGrid<String>(0));
+    }
+
+    @Test
+    void bordersAreHalfOpen() {
+        var grid = new HitTestGrid<String>(16);
+        grid.add(10, 20, 26, 29, "tab");
+        grid.build();
+        assertEquals("tab", grid.get(10, 20));
+        assertEquals("tab", grid.get(35.9, 48.9));
+        assertNull(grid.get(36, 30));
+        assertNull(grid.get(20, 49));
+        assertNull(grid.get(9.9, 30));
+    }
+
+    @Test
+    void matchesLinearScan() {
+        var random = new Random(11);
+        var grid = new HitTestGrid<Integer>(16);
+        for (int run = 0; run < 20; run++) {
+            int count = random.nextInt(60);
+            int[][] rects = new int[count][];
+            grid.clear();
+            for (int i = 0; i < count; i++) {
+                // Negative positions, overlaps and empty rectangles included.
+                rects[i] = new int[] {random.nextInt(400) - 100, random.nextInt(300) - 50, random.nextInt(60), random.nextInt(60)};
+                grid.add(rects[i][0], rects[i][1], rects[i][2], rects[i][3], i);
+            }
+            grid.build();
+
+            for (int probe = 0; probe < 2000; probe++) {
+                double x = random.nextDouble() * 500 - 120;
+                double y = random.nextDouble() * 400 - 70;
+                Integer expected = null;
+                for (int i = 0; i < count && expected == null; i++) {
+                    if (HudUtils.isMouseHoverRect(rects[i][0], rects[i][1], rects[i][2], rects[i][3], x, y)) expected = i;
+                }
+                assertEquals(expected, grid.get(x, y), x + ", " + y);
+            }
+        }
+    }
+}
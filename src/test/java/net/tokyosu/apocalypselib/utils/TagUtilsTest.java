@@ -0,0 +1,73 @@
+package net.tokyosu.apocalypselib.utils;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.DoubleTag;
+import net.minecraft.nbt.FloatTag;
+import net.minecraft.nbt.IntTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TagUtilsTest {
+    private static CompoundTag enchantment(String id, int level) {
+        var tag = new CompoundTag();
+        tag.putString("id", id);
+        tag.putInt("lvl", level);
+        return tag;
+    }
+
+    @Test
+    void compoundOrderDoesNotMatter() {
+        var first = new CompoundTag();
+        first.putInt("Damage", 3);
+        first.putString("Name", "sword");
+        first.put("Display", enchantment("a", 1));
+
+        var second = new CompoundTag();
+        second.put("Display", enchantment("a", 1));
+        second.putString("Name", "sword");
+        second.putInt("Damage", 3);
+
+        assertEquals(TagUtils.hashTag(first), TagUtils.hashTag(second));
+    }
+
+    @Test
+    void listOrderMatters() {
+        var first = new ListTag();
+        first.add(enchantment("minecraft:sharpness", 1));
+        first.add(enchantment("minecraft:unbreaking", 2));
+        var second = new ListTag();
+        second.add(enchantment("minecraft:unbreaking", 2));
+        second.add(enchantment("minecraft:sharpness", 1));
+
+        assertTrue(TagUtils.hashTag(first) != TagUtils.hashTag(second));
+    }
+
+    @Test
+    void contentChangesTheHash() {
+        var tag = enchantment("minecraft:sharpness", 1);
+        // Same value in another key, another value, another type.
+        var key = new CompoundTag();
+        key.putString("name", "minecraft:sharpness");
+        key.putInt("lvl", 1);
+        assertTrue(TagUtils.hashTag(tag) != TagUtils.hashTag(key));
+        assertTrue(TagUtils.hashTag(tag) != TagUtils.hashTag(enchantment("minecraft:sharpness", 2)));
+        assertTrue(TagUtils.hashTag(IntTag.valueOf(1)) != TagUtils.hashTag(StringTag.valueOf("1")));
+    }
+
+    @Test
+    void signedZeroHasOneHash() {
+        // Equal for CompoundTag.equals(), so the dedup must keep only one of them.
+        assertEquals(TagUtils.hashTag(FloatTag.valueOf(0f)), TagUtils.hashTag(FloatTag.valueOf(-0f)));
+        assertEquals(TagUtils.hashTag(DoubleTag.valueOf(0d)), TagUtils.hashTag(DoubleTag.valueOf(-0d)));
+        var positive = new CompoundTag();
+        positive.putFloat("Speed", 0f);
+        var negative = new CompoundTag();
+        negative.putFloat("Speed", -0f);
+        assertEquals(TagUtils.hashTag(positive), TagUtils.hashTag(negative));
+        assertTrue(TagUtils.hashTag(FloatTag.valueOf(0f)) != TagUtils.hashTag(DoubleTag.valueOf(0d)));
+    }
+}